@@ -51,6 +51,9 @@ public class AdminUserInitializer {
             // Only update password if it's a new user or explicitly requested (here we enforce it)
             admin.setPassword(passwordEncoder.encode(adminPassword));
             admin.setRole("ADMIN");
+            if (!isNew) {
+                admin.setTokenVersion(admin.getTokenVersion() + 1);
+            }
             if (admin.getBio() == null) {
                 admin.setBio("System Administrator");
             }
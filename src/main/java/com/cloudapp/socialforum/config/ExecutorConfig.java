@@ -0,0 +1,36 @@
+package com.cloudapp.socialforum.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Bounded pool for fanning independent reads out of one request
+ * The runtime is Java 17, so this stands in for virtual threads; callers always wait
+ * with a deadline and treat a rejected task like a timed-out one.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${fanout.executor.core-size:16}")
+    private int coreSize;
+
+    @Value("${fanout.executor.max-size:64}")
+    private int maxSize;
+
+    @Value("${fanout.executor.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor fanOutExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("fanout-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -69,9 +69,13 @@ public class JwtSecurityConfig {
                     "/api/users/login",
                     "/api/posts",
                     "/api/posts/{id}",
+                    "/api/posts/viewer-state",
+                    "/api/posts/trending",
+                    "/api/posts/*/full",
                     "/api/posts/shared/**",
                     "/api/posts/user/**",
                     "/api/comments/post/**",
+                    "/api/comments/*/replies",
                     "/api/search/**",
                     "/api/ai/**",
                     "/health",
@@ -0,0 +1,12 @@
+package com.cloudapp.socialforum.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (trending checkpoints, write-behind flushes)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -2,21 +2,31 @@ package com.cloudapp.socialforum.controller;
 
 import com.cloudapp.socialforum.model.User;
 import com.cloudapp.socialforum.model.Post;
-import com.cloudapp.socialforum.model.Comment;
 import com.cloudapp.socialforum.repository.PostRepository;
 import com.cloudapp.socialforum.repository.UserRepository;
 import com.cloudapp.socialforum.repository.CommentRepository;
+import com.cloudapp.socialforum.service.CommentService;
 import com.cloudapp.socialforum.service.S3Service;
 import com.cloudapp.socialforum.service.UserService;
 import com.cloudapp.socialforum.service.PostService;
-import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.service.TagService;
+import com.cloudapp.socialforum.service.UsernamePrefixIndex;
+import com.cloudapp.socialforum.service.UserSnapshotCache;
+import com.cloudapp.socialforum.dto.AdminPostFilter;
+import com.cloudapp.socialforum.dto.CommentImportRequest;
+import com.cloudapp.socialforum.dto.PageCursor;
 import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -40,8 +50,20 @@ public class AdminController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private CommentService commentService;
+
     @Autowired
     private S3Service s3Service;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private UsernamePrefixIndex usernamePrefixIndex;
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
     
     @Autowired
     private MeterRegistry meterRegistry;
@@ -87,7 +109,11 @@ public class AdminController {
         try {
             User user = userRepository.findById(id).orElseThrow(() -> new RuntimeException("User not found"));
             user.setRole("ADMIN");
+            // Tokens issued before the promotion carry the old role and version
+            user.setTokenVersion(user.getTokenVersion() + 1);
             userRepository.save(user);
+            usernamePrefixIndex.put(user);
+            userSnapshotCache.evict(id);
             return ResponseEntity.ok(Map.of("message", "User promoted to ADMIN"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to promote user: " + e.getMessage()));
@@ -95,11 +121,30 @@ public class AdminController {
     }
 
     // --- Post Management ---
+    /**
+     * GET /api/admin/posts
+     * Streams {"posts": [...], "nextCursor": ...} to the socket as rows are read.
+     * Optional filters: userId, mediaType, from/to (ISO date-time); paging: after + limit
+     */
     @GetMapping("/posts")
-    public ResponseEntity<?> getAllPosts() {
-        // Use Service DTO to ensure consistency and handle orphaned posts/S3 URLs
-        List<PostDTO> posts = postService.getAllPostsDTO();
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<StreamingResponseBody> getAllPosts(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String mediaType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "0") int limit) {
+        if (limit < 0 || limit > 1000) {
+            throw new IllegalArgumentException("limit must be between 0 (no limit) and 1000");
+        }
+        // Validate the cursor before the response is committed
+        PageCursor.decode(after);
+
+        AdminPostFilter filter = new AdminPostFilter(userId, mediaType, from, to);
+        StreamingResponseBody body = out -> postService.writeAdminPosts(filter, after, limit, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @DeleteMapping("/posts/{id}")
@@ -107,33 +152,12 @@ public class AdminController {
         try {
             // ADMIN ABSOLUTE AUTHORITY: Physical deletion from both RDS and S3
             // This will delete the post from RDS AND delete associated media from S3
-            Post post = postRepository.findById(id).orElseThrow(() -> new RuntimeException("Post not found"));
-            
-            // Use PostService which handles both RDS and S3 deletion
-            postRepository.deleteById(id);
-            
-            // Manual S3 cleanup as backup
-            if (post.getImageUrl() != null && !post.getImageUrl().isEmpty()) {
-                try {
-                    String key = extractS3KeyFromUrl(post.getImageUrl());
-                    if (key != null && !key.isEmpty()) {
-                        s3Service.deleteObject(key);
-                    }
-                } catch (Exception e) {
-                    System.err.println("S3 cleanup warning: " + e.getMessage());
-                }
+            if (!postRepository.existsById(id)) {
+                throw new RuntimeException("Post not found");
             }
             
-            if (post.getVideoUrl() != null && !post.getVideoUrl().isEmpty()) {
-                try {
-                    String key = extractS3KeyFromUrl(post.getVideoUrl());
-                    if (key != null && !key.isEmpty()) {
-                        s3Service.deleteObject(key);
-                    }
-                } catch (Exception e) {
-                    System.err.println("S3 cleanup warning: " + e.getMessage());
-                }
-            }
+            // PostService handles RDS + S3 deletion and evicts cached feed pages
+            postService.deletePost(id);
             
             return ResponseEntity.ok(Map.of(
                 "message", "Post and associated media deleted successfully (RDS + S3)",
@@ -144,40 +168,26 @@ public class AdminController {
         }
     }
     
-    /**
-     * Extract S3 key from URL for deletion
-     */
-    private String extractS3KeyFromUrl(String url) {
-        if (url == null || url.isEmpty()) {
-            return null;
-        }
-        
-        String cleanUrl = url.contains("?") ? url.substring(0, url.indexOf("?")) : url;
-        
-        if (cleanUrl.contains(".amazonaws.com/")) {
-            int keyStart = cleanUrl.lastIndexOf(".amazonaws.com/") + 15;
-            return cleanUrl.substring(keyStart);
-        } else if (cleanUrl.contains(".cloudfront.net/")) {
-            int keyStart = cleanUrl.lastIndexOf(".cloudfront.net/") + 16;
-            return cleanUrl.substring(keyStart);
-        } else if (cleanUrl.contains("/")) {
-            return cleanUrl.substring(cleanUrl.lastIndexOf("/") + 1);
-        }
-        
-        return cleanUrl;
-    }
-
     // --- Comment Management ---
     @GetMapping("/comments")
     public ResponseEntity<?> getAllComments() {
-        List<Comment> comments = commentRepository.findAll();
-        return ResponseEntity.ok(comments);
+        return ResponseEntity.ok(commentService.getAllCommentsDTO());
+    }
+
+    /**
+     * POST /api/admin/comments/import
+     * Bulk insert through JDBC batches; all-or-nothing
+     */
+    @PostMapping("/comments/import")
+    public ResponseEntity<?> importComments(@Valid @RequestBody CommentImportRequest request) {
+        int imported = commentService.importComments(request.getComments());
+        return ResponseEntity.ok(Map.of("message", "Comments imported", "imported", imported));
     }
 
     @DeleteMapping("/comments/{id}")
     public ResponseEntity<?> deleteComment(@PathVariable Long id) {
         try {
-            commentRepository.deleteById(id);
+            commentService.deleteComment(id);
             return ResponseEntity.ok(Map.of("message", "Comment deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to delete comment: " + e.getMessage()));
@@ -310,6 +320,54 @@ public class AdminController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Rebuild denormalized like/comment counters on posts
+     * Runs one transaction per id range so large tables don't hold long locks
+     */
+    @PostMapping("/maintenance/rebuild-counters")
+    public ResponseEntity<?> rebuildCounters(@RequestParam(defaultValue = "1000") int batchSize) {
+        if (batchSize < 1 || batchSize > 10000) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "batchSize must be between 1 and 10000"));
+        }
+        long maxId = postService.getMaxPostId();
+        int batches = 0;
+        long updated = 0;
+        for (long fromId = 0; fromId <= maxId; fromId += batchSize) {
+            updated += postService.rebuildCounters(fromId, fromId + batchSize);
+            batches++;
+        }
+        return ResponseEntity.ok(Map.of(
+            "message", "Post counters rebuilt",
+            "postsUpdated", updated,
+            "batches", batches
+        ));
+    }
+
+    /**
+     * Extract hashtags from posts written before post_tags existed
+     * One transaction per id range; re-running it only fills in what is missing
+     */
+    @PostMapping("/maintenance/backfill-tags")
+    public ResponseEntity<?> backfillTags(@RequestParam(defaultValue = "1000") int batchSize) {
+        if (batchSize < 1 || batchSize > 10000) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "batchSize must be between 1 and 10000"));
+        }
+        long maxId = postService.getMaxPostId();
+        int batches = 0;
+        long inserted = 0;
+        for (long fromId = 0; fromId <= maxId; fromId += batchSize) {
+            inserted += tagService.backfillRange(fromId, fromId + batchSize);
+            batches++;
+        }
+        return ResponseEntity.ok(Map.of(
+            "message", "Post tags backfilled",
+            "tagsInserted", inserted,
+            "batches", batches
+        ));
+    }
+
     @PostMapping("/maintenance/gc")
     public ResponseEntity<?> forceGc() {
         System.gc();
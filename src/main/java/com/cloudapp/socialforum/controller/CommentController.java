@@ -1,16 +1,23 @@
 package com.cloudapp.socialforum.controller;
 
+import com.cloudapp.socialforum.dto.AuthorSummary;
+import com.cloudapp.socialforum.dto.CommentDTO;
 import com.cloudapp.socialforum.dto.CreateCommentRequest;
-import com.cloudapp.socialforum.model.Comment;
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.security.SecurityUtils;
 import com.cloudapp.socialforum.service.CommentService;
+import com.cloudapp.socialforum.service.PostService;
+import com.cloudapp.socialforum.service.UserSnapshotCache;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/comments")
@@ -19,20 +26,65 @@ public class CommentController {
     @Autowired
     private CommentService commentService;
 
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
     @PostMapping
     public ResponseEntity<?> createComment(@Valid @RequestBody CreateCommentRequest request) {
-        Comment comment = commentService.createComment(
+        Optional<Long> principalId = SecurityUtils.currentUserId();
+        CommentDTO comment = commentService.createComment(
             request.getContent(), 
             request.getPostId(), 
-            request.getUserId()
+            principalId.orElse(request.getUserId()),
+            request.getParentId()
         );
+        principalId.flatMap(userSnapshotCache::get).ifPresent(user -> comment.setUser(AuthorSummary.fromUser(user)));
         return ResponseEntity.status(HttpStatus.CREATED).body(comment);
     }
 
+    /**
+     * GET /api/comments/post/{postId}?after=&limit=
+     * Top-level comments oldest first; pass nextCursor back as after for the next page
+     */
     @GetMapping("/post/{postId}")
-    public ResponseEntity<List<Comment>> getCommentsByPostId(@PathVariable Long postId) {
-        List<Comment> comments = commentService.getCommentsByPostId(postId);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<?> getCommentsByPostId(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest webRequest) {
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit must be between 1 and 100"));
+        }
+        Optional<String> etag = postService.getCommentsETag(postId, after, limit);
+        if (etag.isPresent() && webRequest.checkNotModified(etag.get())) {
+            return null;
+        }
+        return ResponseEntity.ok(toResponse(commentService.getComments(postId, after, limit)));
+    }
+
+    /**
+     * GET /api/comments/{id}/replies?after=&limit=
+     */
+    @GetMapping("/{id}/replies")
+    public ResponseEntity<?> getReplies(
+            @PathVariable Long id,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit must be between 1 and 100"));
+        }
+        return ResponseEntity.ok(toResponse(commentService.getReplies(id, after, limit)));
+    }
+
+    private Map<String, Object> toResponse(CursorPage<CommentDTO> page) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("comments", page.getItems());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasMore", page.isHasMore());
+        return response;
     }
 
     @DeleteMapping("/{id}")
@@ -1,6 +1,8 @@
 package com.cloudapp.socialforum.controller;
 
+import com.cloudapp.socialforum.security.SecurityUtils;
 import com.cloudapp.socialforum.service.LikeService;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,9 +23,39 @@ public class LikeController {
             return ResponseEntity.ok(response);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Post or user not found"));
         }
     }
 
+    /**
+     * PUT /api/posts/{postId}/likes - like; repeating it is a no-op ("changed": false)
+     */
+    @PutMapping
+    public ResponseEntity<?> like(@PathVariable Long postId, @RequestParam(required = false) Long userId) {
+        Long actor = SecurityUtils.currentUserId().orElse(userId);
+        if (actor == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "userId is required"));
+        }
+        try {
+            return ResponseEntity.ok(likeService.like(postId, actor));
+        } catch (IllegalArgumentException | DataIntegrityViolationException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Post or user not found"));
+        }
+    }
+
+    /**
+     * DELETE /api/posts/{postId}/likes - unlike; repeating it is a no-op ("changed": false)
+     */
+    @DeleteMapping
+    public ResponseEntity<?> unlike(@PathVariable Long postId, @RequestParam(required = false) Long userId) {
+        Long actor = SecurityUtils.currentUserId().orElse(userId);
+        if (actor == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "userId is required"));
+        }
+        return ResponseEntity.ok(likeService.unlike(postId, actor));
+    }
+
     @GetMapping("/count")
     public ResponseEntity<?> getLikeCount(@PathVariable Long postId) {
         long count = likeService.getLikeCount(postId);
@@ -1,28 +1,38 @@
 package com.cloudapp.socialforum.controller;
 
+import com.cloudapp.socialforum.dto.AuthorSummary;
+import com.cloudapp.socialforum.dto.CommentDTO;
 import com.cloudapp.socialforum.dto.CreatePostRequest;
+import com.cloudapp.socialforum.dto.CursorPage;
 import com.cloudapp.socialforum.dto.PostDTO;
-import com.cloudapp.socialforum.dto.SharePostResponse;
+import com.cloudapp.socialforum.dto.PostViewerState;
+import com.cloudapp.socialforum.dto.ViewerStateRequest;
 import com.cloudapp.socialforum.model.Post;
-import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.security.AuthenticatedUser;
+import com.cloudapp.socialforum.security.SecurityUtils;
+import com.cloudapp.socialforum.service.CommentService;
+import com.cloudapp.socialforum.service.LikeService;
+import com.cloudapp.socialforum.service.PostDetailService;
 import com.cloudapp.socialforum.service.PostService;
 import com.cloudapp.socialforum.service.S3Service;
+import com.cloudapp.socialforum.service.UserSnapshotCache;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/posts")
@@ -31,11 +41,26 @@ public class PostController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private PostDetailService postDetailService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private LikeService likeService;
+
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
     @PostMapping
     public ResponseEntity<?> createPost(@Valid @RequestBody CreatePostRequest request) {
+        // The authenticated principal is the author; the body's userId only serves unauthenticated callers
+        Optional<Long> principalId = SecurityUtils.currentUserId();
+        Long authorId = principalId.orElse(request.getUserId());
         Post post;
         if (request.getVideoUrl() != null || request.getMediaType() != null) {
             post = postService.createPost(
@@ -43,23 +68,36 @@ public class PostController {
                 request.getImageUrl(), 
                 request.getVideoUrl(),
                 request.getMediaType(),
-                request.getUserId()
+                authorId
             );
         } else {
             post = postService.createPost(
                 request.getContent(), 
                 request.getImageUrl(), 
-                request.getUserId()
+                authorId
             );
         }
-        return ResponseEntity.status(HttpStatus.CREATED).body(post);
+        PostDTO dto = PostDTO.fromPost(post);
+        principalId.flatMap(userSnapshotCache::get).ifPresent(user -> dto.setUser(AuthorSummary.fromUser(user)));
+        return ResponseEntity.status(HttpStatus.CREATED).body(dto);
     }
 
+    /**
+     * GET /api/posts
+     * Offset mode (default): ?page=&size=, includes totalItems/totalPages
+     * Cursor mode: ?mode=cursor or ?after=<nextCursor>, seeks by (createdAt, id)
+     *              and skips the COUNT query unless includeTotal=true
+     */
     @GetMapping
     public ResponseEntity<?> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "false") boolean paginated) {
+            @RequestParam(defaultValue = "false") boolean paginated,
+            @RequestParam(defaultValue = "offset") String mode,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @RequestParam(defaultValue = "0") int commentPreview,
+            WebRequest webRequest) {
         
         try {
             // Always use pagination logic for consistency, even if paginated=false is passed
@@ -68,23 +106,53 @@ public class PostController {
                 return ResponseEntity.badRequest()
                         .body(Map.of("error", "Invalid pagination parameters. Page must be >= 0, size must be between 1 and 100"));
             }
-            
-            Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-            Page<PostDTO> postsPage = postService.getAllPostsPaginatedDTO(pageable);
-            
-            // Filter out any null DTOs if conversion failed completely
-            List<PostDTO> postsWithUrls = postsPage.getContent().stream()
-                    .filter(dto -> dto != null)
-                    .collect(java.util.stream.Collectors.toList());
-            
+            if (commentPreview < 0 || commentPreview > 5) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "commentPreview must be between 0 and 5"));
+            }
+
+            boolean cursorMode = after != null || "cursor".equalsIgnoreCase(mode);
+
             Map<String, Object> response = new HashMap<>();
-            response.put("posts", postsWithUrls);
-            response.put("currentPage", postsPage.getNumber());
-            response.put("totalItems", postsPage.getTotalElements());
-            response.put("totalPages", postsPage.getTotalPages());
-            
+            List<PostDTO> posts;
+            Long total = null;
+            boolean hasMore;
+            if (cursorMode) {
+                CursorPage<PostDTO> cursorPage = postService.getPostsAfterCursorDTO(after, size);
+                posts = withCommentPreview(withViewerState(cursorPage.getItems()), commentPreview);
+                hasMore = cursorPage.isHasMore();
+                response.put("nextCursor", cursorPage.getNextCursor());
+                response.put("hasMore", hasMore);
+                if (includeTotal) {
+                    total = postService.countPosts();
+                    response.put("totalItems", total);
+                }
+            } else {
+                // Ordering (createdAt DESC, id DESC) is part of the projection query
+                Pageable pageable = PageRequest.of(page, size);
+                Page<PostDTO> postsPage = postService.getAllPostsPaginatedDTO(pageable);
+
+                // Filter out any null DTOs if conversion failed completely
+                List<PostDTO> postsWithUrls = postsPage.getContent().stream()
+                        .filter(dto -> dto != null)
+                        .collect(java.util.stream.Collectors.toList());
+                posts = withCommentPreview(withViewerState(postsWithUrls), commentPreview);
+                total = postsPage.getTotalElements();
+                hasMore = postsPage.hasNext();
+                response.put("currentPage", postsPage.getNumber());
+                response.put("totalItems", total);
+                response.put("totalPages", postsPage.getTotalPages());
+            }
+            response.put("posts", posts);
+
+            // Conditional GET: the ETag describes exactly the page being returned, cached or not
+            if (webRequest.checkNotModified(postService.getFeedETag(posts, total, hasMore, commentPreview))) {
+                return null;
+            }
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -92,13 +160,96 @@ public class PostController {
         }
     }
 
+    /**
+     * POST /api/posts/viewer-state
+     * Liked-by-me plus like/comment counts for a batch of posts in two queries,
+     * replacing one /likes/status call per rendered post
+     */
+    @PostMapping("/viewer-state")
+    public ResponseEntity<?> getViewerState(@Valid @RequestBody ViewerStateRequest request) {
+        Long userId = SecurityUtils.currentUserId().orElse(request.getUserId());
+        List<PostViewerState> states = likeService.getViewerStates(request.getPostIds(), userId);
+        return ResponseEntity.ok(Map.of("states", states));
+    }
+
+    /**
+     * Embed likedByMe for authenticated callers; cached DTOs are copied, never mutated
+     */
+    private List<PostDTO> withViewerState(List<PostDTO> posts) {
+        Optional<Long> viewerId = SecurityUtils.currentUserId();
+        if (viewerId.isEmpty() || posts.isEmpty()) {
+            return posts;
+        }
+        Set<Long> liked = likeService.getLikedPostIds(
+                posts.stream().map(PostDTO::getId).collect(Collectors.toList()), viewerId.get());
+        return posts.stream()
+                .map(dto -> {
+                    PostDTO copy = dto.copy();
+                    copy.setLikedByMe(liked.contains(dto.getId()));
+                    return copy;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Attach the latest comments per post, loaded for the whole page in one query
+     * Copies DTOs that may still be the shared cached instances
+     */
+    private List<PostDTO> withCommentPreview(List<PostDTO> posts, int perPost) {
+        if (perPost == 0 || posts.isEmpty()) {
+            return posts;
+        }
+        Map<Long, List<CommentDTO>> previews = commentService.getCommentPreviews(
+                posts.stream().map(PostDTO::getId).collect(Collectors.toList()), perPost);
+        return posts.stream()
+                .map(dto -> {
+                    PostDTO copy = dto.copy();
+                    copy.setCommentPreview(previews.getOrDefault(dto.getId(), List.of()));
+                    return copy;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * GET /api/posts/trending
+     * Posts ranked by time-decayed likes, comments and shares
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrendingPosts(@RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit must be between 1 and 100"));
+        }
+        return ResponseEntity.ok(Map.of("posts", withViewerState(postService.getTrendingPostsDTO(limit))));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getPostById(@PathVariable Long id) {
+    public ResponseEntity<?> getPostById(@PathVariable Long id, WebRequest webRequest) {
+        Optional<String> etag = postService.getPostETag(id);
+        if (etag.isPresent() && webRequest.checkNotModified(etag.get())) {
+            return null;
+        }
         return postService.getPostDTOById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * GET /api/posts/{id}/full
+     * Post, first page of comments, like count and viewer state in one response.
+     * Parts that miss the deadline are listed under "missing" and "partial" is true.
+     */
+    @GetMapping("/{id}/full")
+    public ResponseEntity<?> getPostDetail(@PathVariable Long id,
+                                           @RequestParam(defaultValue = "20") int commentLimit) {
+        if (commentLimit < 1 || commentLimit > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Comment limit must be between 1 and 100"));
+        }
+        Long viewerId = SecurityUtils.currentUserId().orElse(null);
+        return postDetailService.getPostDetail(id, viewerId, commentLimit)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/{id}/share")
     public ResponseEntity<?> generateShareLink(
             @PathVariable Long id,
@@ -109,18 +260,7 @@ public class PostController {
                 request.getServerName(),
                 request.getServerPort());
             
-            String shareUrl = postService.generateShareLink(id, baseUrl);
-            Post post = postService.incrementShareCount(id);
-            
-            SharePostResponse response = new SharePostResponse(
-                post.getId(),
-                post.getShareToken(),
-                shareUrl,
-                post.getShareCount(),
-                "Share link generated successfully"
-            );
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(postService.sharePost(id, baseUrl));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", e.getMessage()));
@@ -129,7 +269,7 @@ public class PostController {
 
     @GetMapping("/shared/{shareToken}")
     public ResponseEntity<?> getPostByShareToken(@PathVariable String shareToken) {
-        return postService.getPostByShareToken(shareToken)
+        return postService.getSharedPostDTO(shareToken)
                 .map(post -> {
                     Map<String, Object> response = new HashMap<>();
                     response.put("post", post);
@@ -156,23 +296,22 @@ public class PostController {
     public ResponseEntity<?> deletePost(@PathVariable Long id) {
         try {
             // Get authenticated user
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            Optional<AuthenticatedUser> principal = SecurityUtils.currentPrincipal();
             
-            if (authentication == null || !authentication.isAuthenticated()) {
+            if (principal.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Authentication required"));
             }
 
-            // Get current user from authentication principal
-            User currentUser = (User) authentication.getPrincipal();
+            AuthenticatedUser currentUser = principal.get();
             
             // Get the post
             Post post = postService.getPostById(id)
                     .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + id));
             
             // Authorization check: ADMIN can delete any post, users can delete their own
-            boolean isAdmin = currentUser.getRole().equals("ADMIN");
-            boolean isOwner = post.getUser() != null && post.getUser().getId().equals(currentUser.getId());
+            boolean isAdmin = currentUser.isAdmin();
+            boolean isOwner = post.getUser() != null && post.getUser().getId().equals(currentUser.id());
             
             if (!isAdmin && !isOwner) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -188,7 +327,7 @@ public class PostController {
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Post deleted successfully");
             response.put("deletedBy", isAdmin ? "ADMIN" : "OWNER");
-            response.put("username", currentUser.getUsername());
+            response.put("username", currentUser.username());
             response.put("postId", id);
             
             return ResponseEntity.ok(response);
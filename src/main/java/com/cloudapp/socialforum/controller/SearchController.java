@@ -1,11 +1,12 @@
 package com.cloudapp.socialforum.controller;
 
 import com.cloudapp.socialforum.service.SearchService;
+import com.cloudapp.socialforum.service.TagService;
+import com.cloudapp.socialforum.service.UsernamePrefixIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Collections;
 import java.util.Map;
 
 @RestController
@@ -15,20 +16,49 @@ public class SearchController {
     @Autowired
     private SearchService searchService;
 
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private UsernamePrefixIndex usernamePrefixIndex;
+
     @GetMapping
     public ResponseEntity<?> search(
             @RequestParam String query,
-            @RequestParam(defaultValue = "all") String type) {
+            @RequestParam(defaultValue = "all") String type,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         
-        try {
-            Map<String, Object> results = searchService.search(query, type);
-            return ResponseEntity.ok(results);
-        } catch (Exception e) {
-            return ResponseEntity.ok(Map.of(
-                "users", Collections.emptyList(),
-                "posts", Collections.emptyList(),
-                "error", "Search failed: " + e.getMessage()
-            ));
+        if (page < 0 || size < 1 || size > 100) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and 100");
+        }
+        return ResponseEntity.ok(searchService.search(query, type, page, size));
+    }
+
+    /**
+     * Search-as-you-type for usernames, answered from the in-memory prefix index
+     */
+    @GetMapping("/users/suggest")
+    public ResponseEntity<?> suggestUsers(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        if (limit < 1 || limit > 20) {
+            throw new IllegalArgumentException("limit must be between 1 and 20");
+        }
+        if (prefix.length() > 50) {
+            throw new IllegalArgumentException("prefix must be at most 50 characters");
+        }
+        return ResponseEntity.ok(Map.of("users", usernamePrefixIndex.suggest(prefix, limit)));
+    }
+
+    /**
+     * Most used hashtags, from the per-tag counts kept in tag_stats
+     */
+    @GetMapping("/tags/popular")
+    public ResponseEntity<?> popularTags(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("limit must be between 1 and 100");
         }
+        return ResponseEntity.ok(Map.of("tags", tagService.getPopularTags(limit)));
     }
 }
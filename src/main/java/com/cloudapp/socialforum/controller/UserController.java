@@ -40,7 +40,7 @@ public class UserController {
             );
             
             // Generate JWT token for newly registered user
-            String token = jwtTokenProvider.generateToken(user.getUsername(), user.getRole());
+            String token = jwtTokenProvider.generateToken(user);
             
             AuthResponse response = new AuthResponse(
                 token,
@@ -77,7 +77,7 @@ public class UserController {
                 User user = userOpt.get();
                 
                 // Generate JWT token
-                String token = jwtTokenProvider.generateToken(user.getUsername(), user.getRole());
+                String token = jwtTokenProvider.generateToken(user);
                 
                 AuthResponse response = new AuthResponse(
                     token,
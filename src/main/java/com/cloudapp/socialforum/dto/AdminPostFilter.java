@@ -0,0 +1,20 @@
+package com.cloudapp.socialforum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for the admin post listing; null fields are ignored
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminPostFilter {
+    private Long userId;
+    private String mediaType;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -0,0 +1,52 @@
+package com.cloudapp.socialforum.dto;
+
+import com.cloudapp.socialforum.model.User;
+import lombok.AllArgsConstructor;
+import org.hibernate.Hibernate;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compact author view embedded in post and comment read models
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorSummary {
+    private Long id;
+    private String username;
+    private String role;
+    private String avatarUrl;
+
+    /**
+     * Placeholder for content whose author row no longer exists
+     */
+    public static AuthorSummary unknown() {
+        return new AuthorSummary(-1L, "Unknown User", "USER", null);
+    }
+
+    /**
+     * Build from LEFT JOIN columns; username is NOT NULL, so a null means the join missed
+     * (the id may still be populated because Hibernate reads it from the foreign key)
+     */
+    public static AuthorSummary of(Long id, String username, String role, String avatarUrl) {
+        return id != null && username != null ? new AuthorSummary(id, username, role, avatarUrl) : unknown();
+    }
+
+    /**
+     * Summary of a getReference() proxy without initializing it; only the id is known then
+     */
+    public static AuthorSummary fromReference(User user) {
+        if (user != null && !Hibernate.isInitialized(user)) {
+            return new AuthorSummary(user.getId(), null, null, null);
+        }
+        return fromUser(user);
+    }
+
+    public static AuthorSummary fromUser(User user) {
+        if (user == null) {
+            return unknown();
+        }
+        return new AuthorSummary(user.getId(), user.getUsername(), user.getRole(), user.getAvatarUrl());
+    }
+}
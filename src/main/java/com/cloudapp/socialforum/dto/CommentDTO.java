@@ -0,0 +1,40 @@
+package com.cloudapp.socialforum.dto;
+
+import com.cloudapp.socialforum.model.Comment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Comment read model; the author comes from the same join, so a page of comments is one statement
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentDTO {
+    private Long id;
+    private Long postId;
+    private Long parentId;
+    private String content;
+    private LocalDateTime createdAt;
+    private Integer replyCount;
+    private AuthorSummary user;
+
+    /**
+     * JPQL constructor projection (see CommentRepository.COMMENT_DTO_SELECT)
+     */
+    public CommentDTO(Long id, Long postId, Long parentId, String content, LocalDateTime createdAt,
+                      Integer replyCount, Long authorId, String authorUsername, String authorRole,
+                      String authorAvatarUrl) {
+        this(id, postId, parentId, content, createdAt, replyCount != null ? replyCount : 0,
+                AuthorSummary.of(authorId, authorUsername, authorRole, authorAvatarUrl));
+    }
+
+    public static CommentDTO fromComment(Comment comment) {
+        return new CommentDTO(comment.getId(), comment.getPost().getId(), comment.getParentId(),
+                comment.getContent(), comment.getCreatedAt(), comment.getReplyCount(),
+                AuthorSummary.fromReference(comment.getUser()));
+    }
+}
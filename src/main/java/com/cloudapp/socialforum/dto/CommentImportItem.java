@@ -0,0 +1,29 @@
+package com.cloudapp.socialforum.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of a bulk comment import; parentId, when set, must be a top-level comment
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentImportItem {
+
+    @NotBlank(message = "Content is required")
+    @Size(max = 2000, message = "Comment cannot exceed 2000 characters")
+    private String content;
+
+    @NotNull(message = "Post ID is required")
+    private Long postId;
+
+    @NotNull(message = "User ID is required")
+    private Long userId;
+
+    private Long parentId;
+}
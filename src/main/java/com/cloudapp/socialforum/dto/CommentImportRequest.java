@@ -0,0 +1,20 @@
+package com.cloudapp.socialforum.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentImportRequest {
+
+    @NotEmpty(message = "At least one comment is required")
+    @Size(max = 10000, message = "At most 10000 comments per import")
+    private List<@Valid CommentImportItem> comments;
+}
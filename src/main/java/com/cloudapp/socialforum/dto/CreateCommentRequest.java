@@ -19,6 +19,11 @@ public class CreateCommentRequest {
     @NotNull(message = "Post ID is required")
     private Long postId;
 
-    @NotNull(message = "User ID is required")
+    // Ignored when the request is authenticated; the principal is the author
     private Long userId;
+
+    /**
+     * Set to reply to an existing comment on the same post
+     */
+    private Long parentId;
 }
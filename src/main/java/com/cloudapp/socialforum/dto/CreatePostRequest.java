@@ -1,7 +1,6 @@
 package com.cloudapp.socialforum.dto;
 
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,7 +24,7 @@ public class CreatePostRequest {
     @Size(max = 20, message = "Media type cannot exceed 20 characters")
     private String mediaType; // "image", "video", "reel", "text"
 
-    @NotNull(message = "User ID is required")
+    // Ignored when the request is authenticated; the principal is the author
     private Long userId;
 }
 
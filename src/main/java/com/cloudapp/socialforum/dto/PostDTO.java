@@ -1,14 +1,15 @@
 package com.cloudapp.socialforum.dto;
 
 import com.cloudapp.socialforum.model.Post;
-import com.cloudapp.socialforum.model.User;
 import com.cloudapp.socialforum.service.S3Service;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -21,14 +22,54 @@ public class PostDTO {
     private String mediaType;
     private String shareToken;
     private Integer shareCount;
-    
-    @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
-    private User user;
-    
+    private AuthorSummary user;
     private Integer commentsCount;
     private Integer likesCount;
     private LocalDateTime createdAt;
 
+    // Row revision, bumped by every counter update; feeds the feed ETag, never serialized
+    @JsonIgnore
+    private Long revision;
+
+    // Viewer-specific; only present when the feed is requested by an authenticated user
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean likedByMe;
+
+    // Latest top-level comments; only present when the feed is requested with ?commentPreview=N
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CommentDTO> commentPreview;
+
+    /**
+     * Constructor used by JPQL "SELECT new" projections in PostRepository
+     * Post columns plus the author summary come back in a single row; a missing
+     * author (LEFT JOIN miss) becomes the "Unknown User" placeholder
+     */
+    public PostDTO(Long id, String content, String imageUrl, String videoUrl, String mediaType,
+                   String shareToken, Integer shareCount, Integer commentsCount, Integer likesCount,
+                   LocalDateTime createdAt, Long revision, Long authorId, String authorUsername,
+                   String authorRole, String authorAvatarUrl) {
+        this.id = id;
+        this.content = content;
+        this.imageUrl = imageUrl;
+        this.videoUrl = videoUrl;
+        this.mediaType = mediaType;
+        this.shareToken = shareToken;
+        this.shareCount = shareCount;
+        this.commentsCount = commentsCount != null ? commentsCount : 0;
+        this.likesCount = likesCount != null ? likesCount : 0;
+        this.createdAt = createdAt;
+        this.revision = revision;
+        this.user = AuthorSummary.of(authorId, authorUsername, authorRole, authorAvatarUrl);
+    }
+
+    /**
+     * Shallow copy, used before attaching viewer-specific fields to a shared (cached) DTO
+     */
+    public PostDTO copy() {
+        return new PostDTO(id, content, imageUrl, videoUrl, mediaType, shareToken, shareCount,
+                user, commentsCount, likesCount, createdAt, revision, likedByMe, commentPreview);
+    }
+
     /**
      * Convert Post entity to DTO
      * Note: URLs are S3 keys at this stage, will be converted to pre-signed URLs in service layer
@@ -42,10 +83,12 @@ public class PostDTO {
         dto.setMediaType(post.getMediaType());
         dto.setShareToken(post.getShareToken());
         dto.setShareCount(post.getShareCount());
-        dto.setUser(post.getUser());
-        dto.setCommentsCount(post.getComments() != null ? post.getComments().size() : 0);
-        dto.setLikesCount(post.getLikes() != null ? post.getLikes().size() : 0);
+        dto.setUser(AuthorSummary.fromReference(post.getUser()));
+        // Counters are denormalized on the post row, so the comment/like collections stay unloaded
+        dto.setCommentsCount(post.getCommentCount() != null ? post.getCommentCount() : 0);
+        dto.setLikesCount(post.getLikeCount() != null ? post.getLikeCount() : 0);
         dto.setCreatedAt(post.getCreatedAt());
+        dto.setRevision(post.getRevision());
         return dto;
     }
 
@@ -54,17 +97,21 @@ public class PostDTO {
      * S3 bucket is PRIVATE, all media access requires temporary pre-signed URLs
      */
     public static PostDTO fromPostWithPresignedUrls(Post post, S3Service s3Service) {
-        PostDTO dto = fromPost(post);
-        
-        // Convert S3 keys to pre-signed URLs (valid for 1 hour)
-        if (dto.getImageUrl() != null && !dto.getImageUrl().isEmpty()) {
-            dto.setImageUrl(s3Service.generatePresignedDownloadUrl(dto.getImageUrl()));
+        return fromPost(post).withPresignedUrls(s3Service);
+    }
+
+    /**
+     * Convert stored S3 keys to pre-signed URLs (valid for 1 hour)
+     */
+    public PostDTO withPresignedUrls(S3Service s3Service) {
+        if (imageUrl != null && !imageUrl.isEmpty()) {
+            imageUrl = s3Service.generatePresignedDownloadUrl(imageUrl);
         }
         
-        if (dto.getVideoUrl() != null && !dto.getVideoUrl().isEmpty()) {
-            dto.setVideoUrl(s3Service.generatePresignedDownloadUrl(dto.getVideoUrl()));
+        if (videoUrl != null && !videoUrl.isEmpty()) {
+            videoUrl = s3Service.generatePresignedDownloadUrl(videoUrl);
         }
         
-        return dto;
+        return this;
     }
 }
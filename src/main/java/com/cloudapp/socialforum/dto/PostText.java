@@ -0,0 +1,19 @@
+package com.cloudapp.socialforum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Post id, content and creation time only, for building the search index and tag backfill
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostText {
+    private Long id;
+    private String content;
+    private LocalDateTime createdAt;
+}
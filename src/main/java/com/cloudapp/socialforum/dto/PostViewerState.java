@@ -0,0 +1,25 @@
+package com.cloudapp.socialforum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-viewer state of one post: liked-by-me plus the current counters
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostViewerState {
+    private Long postId;
+    private boolean liked;
+    private Integer likeCount;
+    private Integer commentCount;
+
+    /**
+     * Constructor used by the JPQL projection in PostRepository; liked is filled in afterwards
+     */
+    public PostViewerState(Long postId, Integer likeCount, Integer commentCount) {
+        this(postId, false, likeCount != null ? likeCount : 0, commentCount != null ? commentCount : 0);
+    }
+}
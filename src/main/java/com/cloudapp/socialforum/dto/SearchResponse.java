@@ -0,0 +1,34 @@
+package com.cloudapp.socialforum.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of GET /api/search
+ * page/size/hasMore describe the post results (the user results for type "people").
+ * partial is true when a source failed or missed the deadline; its name is listed in missing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResponse {
+    private String query;
+    private String type;
+    private List<PostDTO> posts = new ArrayList<>();
+    private List<UserSearchResult> users = new ArrayList<>();
+    private int count;
+    private int page;
+    private int size;
+    private boolean hasMore;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalPosts;
+
+    private boolean partial;
+    private List<String> missing = new ArrayList<>();
+}
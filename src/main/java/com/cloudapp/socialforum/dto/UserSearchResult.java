@@ -0,0 +1,22 @@
+package com.cloudapp.socialforum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Public profile fields shown for a user in search results; never includes the email
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchResult {
+    private Long id;
+    private String username;
+    private String avatarUrl;
+    private String bio;
+    private LocalDateTime createdAt;
+    private String role;
+}
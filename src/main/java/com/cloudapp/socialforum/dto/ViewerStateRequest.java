@@ -0,0 +1,22 @@
+package com.cloudapp.socialforum.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViewerStateRequest {
+
+    @NotEmpty(message = "Post IDs are required")
+    @Size(max = 100, message = "At most 100 post IDs per request")
+    private List<Long> postIds;
+
+    // Optional: ignored when the request carries a valid JWT
+    private Long userId;
+}
@@ -11,7 +11,10 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_post_parent_created_id", columnList = "post_id, parent_id, created_at, id"),
+    @Index(name = "idx_comments_parent_created_id", columnList = "parent_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,9 +27,9 @@ public class Comment {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
-    @JsonIgnoreProperties({"password"})
+    @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private User user;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -34,6 +37,18 @@ public class Comment {
     @JsonIgnore
     private Post post;
 
+    /**
+     * Top-level comment this replies to; null for top-level comments (one level of nesting)
+     */
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    /**
+     * Materialized number of replies, maintained by CommentService
+     */
+    @Column(name = "reply_count", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer replyCount = 0;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
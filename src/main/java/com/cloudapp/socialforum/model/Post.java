@@ -13,7 +13,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    @Index(name = "idx_posts_created_at_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -41,6 +43,17 @@ public class Post {
     @Column(name = "share_count")
     private Integer shareCount = 0;
 
+    // Denormalized counters, maintained with single-statement updates in the repository
+    @Column(name = "like_count", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer likeCount = 0;
+
+    @Column(name = "comment_count", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer commentCount = 0;
+
+    // Modification counter for ETags; bumped together with the counters above
+    @Column(name = "revision", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long revision = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
@@ -0,0 +1,45 @@
+package com.cloudapp.socialforum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One hashtag on one post, written when the post is created
+ * (tag, created_at, post_id) serves "newest posts with this tag" as an index range scan;
+ * created_at is copied from the post so the scan never has to touch the posts table to sort.
+ */
+@Entity
+@Table(name = "post_tags", indexes = {
+    @Index(name = "idx_post_tags_tag_created", columnList = "tag, created_at, post_id"),
+    @Index(name = "idx_post_tags_post_id", columnList = "post_id")
+})
+@IdClass(PostTag.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostTag {
+
+    @Id
+    @Column(length = 100)
+    private String tag;
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String tag;
+        private Long postId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cloudapp.socialforum.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of posts per hashtag, maintained alongside post_tags for the popular-tags listing
+ */
+@Entity
+@Table(name = "tag_stats", indexes = {
+    @Index(name = "idx_tag_stats_post_count", columnList = "post_count")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagStat {
+
+    @Id
+    @Column(length = 100)
+    private String tag;
+
+    @Column(name = "post_count", nullable = false)
+    private Long postCount;
+
+    @Column(name = "last_used_at")
+    private LocalDateTime lastUsedAt;
+}
@@ -1,13 +1,93 @@
 package com.cloudapp.socialforum.repository;
 
+import com.cloudapp.socialforum.dto.CommentDTO;
 import com.cloudapp.socialforum.model.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     
+    /**
+     * Comment plus author columns in one statement; LEFT JOIN keeps comments of deleted authors
+     */
+    String COMMENT_DTO_SELECT = "SELECT new com.cloudapp.socialforum.dto.CommentDTO(" +
+            "c.id, c.post.id, c.parentId, c.content, c.createdAt, c.replyCount, " +
+            "u.id, u.username, u.role, u.avatarUrl) " +
+            "FROM Comment c LEFT JOIN c.user u ";
+    
     List<Comment> findByPostIdOrderByCreatedAtAsc(Long postId);
+    
+    /**
+     * Top-level comments, oldest first, seeking on (post_id, parent_id, created_at, id)
+     */
+    @Query(COMMENT_DTO_SELECT + "WHERE c.post.id = :postId AND c.parentId IS NULL " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<CommentDTO> findTopLevelFirstPage(@Param("postId") Long postId, Pageable pageable);
+    
+    @Query(COMMENT_DTO_SELECT + "WHERE c.post.id = :postId AND c.parentId IS NULL " +
+           "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<CommentDTO> findTopLevelPageAfter(@Param("postId") Long postId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+    
+    @Query(COMMENT_DTO_SELECT + "WHERE c.parentId = :parentId ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<CommentDTO> findRepliesFirstPage(@Param("parentId") Long parentId, Pageable pageable);
+    
+    @Query(COMMENT_DTO_SELECT + "WHERE c.parentId = :parentId " +
+           "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    Slice<CommentDTO> findRepliesPageAfter(@Param("parentId") Long parentId,
+                                           @Param("createdAt") LocalDateTime createdAt,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+    
+    /**
+     * Latest N top-level comments for each of the given posts in one statement
+     * ROW_NUMBER() per post is supported by both MySQL 8 and H2; rows come back newest first
+     * per post as (id, post_id, parent_id, content, created_at, reply_count, author id/username/role/avatar)
+     */
+    @Query(value = "SELECT r.id, r.post_id, r.parent_id, r.content, r.created_at, r.reply_count, " +
+           "u.id AS author_id, u.username, u.role, u.avatar_url " +
+           "FROM (SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.post_id ORDER BY c.created_at DESC, c.id DESC) AS rn " +
+           "      FROM comments c WHERE c.post_id IN (:postIds) AND c.parent_id IS NULL) r " +
+           "LEFT JOIN app_users u ON u.id = r.user_id " +
+           "WHERE r.rn <= :perPost " +
+           "ORDER BY r.post_id, r.created_at DESC, r.id DESC",
+           nativeQuery = true)
+    List<Object[]> findLatestTopLevelRows(@Param("postIds") Collection<Long> postIds, @Param("perPost") int perPost);
+    
+    @Query(COMMENT_DTO_SELECT + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentDTO> findAllCommentDTOs();
+    
+    @Modifying
+    @Query("UPDATE Comment c SET c.replyCount = c.replyCount + 1 WHERE c.id = :commentId")
+    int incrementReplyCount(@Param("commentId") Long commentId);
+    
+    @Modifying
+    @Query("UPDATE Comment c SET c.replyCount = CASE WHEN c.replyCount > 0 THEN c.replyCount - 1 ELSE 0 END " +
+           "WHERE c.id = :commentId")
+    int decrementReplyCount(@Param("commentId") Long commentId);
+    
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.parentId = :parentId")
+    int deleteReplies(@Param("parentId") Long parentId);
+    
+    /**
+     * (id, post id, parent id) rows for the given comments, to validate reply targets in bulk
+     */
+    @Query("SELECT c.id, c.post.id, c.parentId FROM Comment c WHERE c.id IN :ids")
+    List<Object[]> findThreadRefs(@Param("ids") Collection<Long> ids);
 }
@@ -2,9 +2,14 @@ package com.cloudapp.socialforum.repository;
 
 import com.cloudapp.socialforum.model.Like;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,4 +23,30 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     long countByPostId(Long postId);
     
     void deleteByUserIdAndPostId(Long userId, Long postId);
+    
+    /**
+     * Insert the like unless likes(user_id, post_id) already has it; returns 1 when a row was added
+     * MySQL also downgrades a missing post/user FK to a warning here, so 0 can mean "no such post"
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO likes (user_id, post_id, created_at) VALUES (:userId, :postId, :createdAt)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("postId") Long postId,
+                       @Param("createdAt") LocalDateTime createdAt);
+    
+    /**
+     * Conditional delete; returns 1 when a like was removed
+     */
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.user.id = :userId AND l.post.id = :postId")
+    int deleteIfPresent(@Param("userId") Long userId, @Param("postId") Long postId);
+    
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId")
+    List<Long> findPostIdsLikedByUser(@Param("userId") Long userId);
+    
+    /**
+     * Which of the given posts the user has liked, in one IN query on likes(user_id, post_id)
+     */
+    @Query("SELECT l.post.id FROM Like l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
 }
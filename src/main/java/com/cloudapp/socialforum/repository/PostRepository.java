@@ -1,15 +1,26 @@
 package com.cloudapp.socialforum.repository;
 
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.dto.PostText;
+import com.cloudapp.socialforum.dto.PostViewerState;
 import com.cloudapp.socialforum.model.Post;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
@@ -22,9 +33,157 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     
     Page<Post> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
+    /**
+     * Read-model projection: post columns plus a compact author summary in one row
+     * LEFT JOIN keeps posts whose author row is missing; PostDTO maps them to "Unknown User"
+     */
+    String POST_DTO_SELECT = "SELECT new com.cloudapp.socialforum.dto.PostDTO(" +
+            "p.id, p.content, p.imageUrl, p.videoUrl, p.mediaType, p.shareToken, p.shareCount, " +
+            "p.commentCount, p.likeCount, p.createdAt, p.revision, u.id, u.username, u.role, u.avatarUrl) " +
+            "FROM Post p LEFT JOIN p.user u ";
+    
+    @Query(value = POST_DTO_SELECT + "ORDER BY p.createdAt DESC, p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostDTO> findFeedPage(Pageable pageable);
+    
+    /**
+     * Keyset pagination: first page of the feed, no COUNT query
+     */
+    @Query(POST_DTO_SELECT + "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<PostDTO> findFeedFirstPage(Pageable pageable);
+    
+    /**
+     * Keyset pagination: seek past (createdAt, id) using idx_posts_created_at_id
+     */
+    @Query(POST_DTO_SELECT +
+           "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<PostDTO> findFeedPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+    
+    /**
+     * Streaming admin listing: rows are read through a JDBC cursor (fetch size hint)
+     * instead of being materialized; all filters and the keyset cursor are optional
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(POST_DTO_SELECT +
+           "WHERE (:userId IS NULL OR p.user.id = :userId) " +
+           "AND (:mediaType IS NULL OR p.mediaType = :mediaType) " +
+           "AND (:from IS NULL OR p.createdAt >= :from) " +
+           "AND (:to IS NULL OR p.createdAt < :to) " +
+           "AND (:afterCreatedAt IS NULL OR p.createdAt < :afterCreatedAt " +
+           "     OR (p.createdAt = :afterCreatedAt AND p.id < :afterId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Stream<PostDTO> streamForAdmin(@Param("userId") Long userId,
+                                   @Param("mediaType") String mediaType,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                   @Param("afterId") Long afterId);
+    
+    @Query(POST_DTO_SELECT + "WHERE p.id = :id")
+    Optional<PostDTO> findPostDTOById(@Param("id") Long id);
+    
+    @Query(POST_DTO_SELECT + "WHERE p.shareToken = :shareToken")
+    Optional<PostDTO> findPostDTOByShareToken(@Param("shareToken") String shareToken);
+    
+    @Query(POST_DTO_SELECT + "WHERE p.id IN :ids")
+    List<PostDTO> findPostDTOsByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query(POST_DTO_SELECT + "WHERE p.user.id = :userId ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostDTO> findPostDTOsByUserId(@Param("userId") Long userId);
+    
     @Query("SELECT p FROM Post p WHERE LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%'))")
     List<Post> searchByContent(@Param("query") String query);
     
-    @Query("SELECT p FROM Post p WHERE LOWER(p.content) LIKE LOWER(CONCAT('%', :tag, '%'))")
-    List<Post> searchByTag(@Param("tag") String tag);
+    /**
+     * LIKE fallback for post search while the in-memory index is still building
+     */
+    @Query(POST_DTO_SELECT + "WHERE LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<PostDTO> searchPostDTOsByContent(@Param("query") String query, Pageable pageable);
+    
+    /**
+     * Streamed id + content scan used to build PostSearchIndex at startup
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.cloudapp.socialforum.dto.PostText(p.id, p.content, p.createdAt) FROM Post p")
+    Stream<PostText> streamPostTexts();
+    
+    @Query("SELECT new com.cloudapp.socialforum.dto.PostText(p.id, p.content, p.createdAt) FROM Post p " +
+           "WHERE p.id >= :fromId AND p.id < :toId")
+    List<PostText> findPostTextsInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+    
+    @Query("SELECT new com.cloudapp.socialforum.dto.PostText(p.id, p.content, p.createdAt) FROM Post p " +
+           "WHERE p.id IN :ids")
+    List<PostText> findPostTextsByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Every post id, streamed, for reconciling PostSearchIndex with posts deleted elsewhere
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id FROM Post p")
+    Stream<Long> streamPostIds();
+    
+    /**
+     * Newest posts carrying a hashtag: a range scan of idx_post_tags_tag_created
+     */
+    @Query(POST_DTO_SELECT + "JOIN PostTag t ON t.postId = p.id WHERE t.tag = :tag " +
+           "ORDER BY t.createdAt DESC, t.postId DESC")
+    Slice<PostDTO> findPostDTOsByTag(@Param("tag") String tag, Pageable pageable);
+    
+    @Query("SELECT new com.cloudapp.socialforum.dto.PostViewerState(p.id, p.likeCount, p.commentCount) " +
+           "FROM Post p WHERE p.id IN :postIds")
+    List<PostViewerState> findViewerStates(@Param("postIds") Collection<Long> postIds);
+    
+    @Query("SELECT p.likeCount FROM Post p WHERE p.id = :postId")
+    Optional<Integer> findLikeCountById(@Param("postId") Long postId);
+    
+    @Modifying
+    @Query("UPDATE Post p SET p.likeCount = p.likeCount + 1, p.revision = p.revision + 1 WHERE p.id = :postId")
+    int incrementLikeCount(@Param("postId") Long postId);
+    
+    @Modifying
+    @Query("UPDATE Post p SET p.likeCount = CASE WHEN p.likeCount > 0 THEN p.likeCount - 1 ELSE 0 END, " +
+           "p.revision = p.revision + 1 WHERE p.id = :postId")
+    int decrementLikeCount(@Param("postId") Long postId);
+    
+    @Modifying
+    @Query("UPDATE Post p SET p.commentCount = p.commentCount + 1, p.revision = p.revision + 1 WHERE p.id = :postId")
+    int incrementCommentCount(@Param("postId") Long postId);
+    
+    @Modifying
+    @Query("UPDATE Post p SET p.commentCount = CASE WHEN p.commentCount > :amount THEN p.commentCount - :amount ELSE 0 END, " +
+           "p.revision = p.revision + 1 WHERE p.id = :postId")
+    int decrementCommentCount(@Param("postId") Long postId, @Param("amount") int amount);
+    
+    /**
+     * Version watermark for conditional GETs: bumped by every counter update on the row
+     */
+    @Query("SELECT p.revision FROM Post p WHERE p.id = :postId")
+    Optional<Long> findRevisionById(@Param("postId") Long postId);
+    
+    @Query("SELECT MAX(p.id) FROM Post p")
+    Long findMaxId();
+    
+    /**
+     * Recompute denormalized counters for posts with fromId <= id < toId
+     */
+    @Modifying
+    @Query("UPDATE Post p SET " +
+           "p.likeCount = (SELECT COUNT(l) FROM Like l WHERE l.post.id = p.id), " +
+           "p.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.post.id = p.id), " +
+           "p.revision = p.revision + 1 " +
+           "WHERE p.id >= :fromId AND p.id < :toId")
+    int rebuildCounters(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -0,0 +1,16 @@
+package com.cloudapp.socialforum.repository;
+
+import com.cloudapp.socialforum.model.TagStat;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TagStatRepository extends JpaRepository<TagStat, String> {
+
+    @Query("SELECT s FROM TagStat s WHERE s.postCount > 0 ORDER BY s.postCount DESC, s.tag ASC")
+    List<TagStat> findPopular(Pageable pageable);
+}
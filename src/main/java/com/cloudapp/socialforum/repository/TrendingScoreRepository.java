@@ -0,0 +1,18 @@
+package com.cloudapp.socialforum.repository;
+
+import com.cloudapp.socialforum.model.TrendingScore;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TrendingScoreRepository extends JpaRepository<TrendingScore, Long> {
+
+    @Modifying
+    @Query("DELETE FROM TrendingScore t WHERE t.scoredAt < :cutoff")
+    int deleteScoredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,6 +1,10 @@
 package com.cloudapp.socialforum.repository;
 
+import com.cloudapp.socialforum.dto.AuthorSummary;
+import com.cloudapp.socialforum.dto.UserSearchResult;
 import com.cloudapp.socialforum.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,8 +24,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     boolean existsByEmail(String email);
     
-    @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<User> searchUsers(@Param("query") String query);
+    /**
+     * Username match only; matching on email would let anyone probe for addresses
+     * Usernames starting with the query rank ahead of those merely containing it.
+     */
+    @Query("SELECT new com.cloudapp.socialforum.dto.UserSearchResult(" +
+           "u.id, u.username, u.avatarUrl, u.bio, u.createdAt, u.role) FROM User u " +
+           "WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "ORDER BY CASE WHEN LOWER(u.username) LIKE LOWER(CONCAT(:query, '%')) THEN 0 ELSE 1 END, u.username")
+    Slice<UserSearchResult> searchUsers(@Param("query") String query, Pageable pageable);
+    
+    /**
+     * Every user as a compact summary, for loading UsernamePrefixIndex
+     */
+    @Query("SELECT new com.cloudapp.socialforum.dto.AuthorSummary(u.id, u.username, u.role, u.avatarUrl) FROM User u")
+    List<AuthorSummary> findAllAuthorSummaries();
+
+    /**
+     * Users registered after the given id, for the periodic UsernamePrefixIndex refresh
+     */
+    @Query("SELECT new com.cloudapp.socialforum.dto.AuthorSummary(u.id, u.username, u.role, u.avatarUrl) "
+            + "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<AuthorSummary> findAuthorSummariesAfter(@Param("afterId") Long afterId);
     
     Optional<User> findByUsernameAndEmail(String username, String email);
 }
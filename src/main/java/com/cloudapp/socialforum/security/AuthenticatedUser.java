@@ -0,0 +1,19 @@
+package com.cloudapp.socialforum.security;
+
+import java.security.Principal;
+
+/**
+ * Principal built from verified token claims, without a database read
+ * Controllers that need more than id, username and role load the User through UserSnapshotCache.
+ */
+public record AuthenticatedUser(Long id, String username, String role) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+}
@@ -2,6 +2,7 @@ package com.cloudapp.socialforum.security;
 
 import com.cloudapp.socialforum.model.User;
 import com.cloudapp.socialforum.repository.UserRepository;
+import com.cloudapp.socialforum.service.UserSnapshotCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,7 +24,9 @@ import java.util.Optional;
 
 /**
  * JWT Authentication Filter
- * Intercepts requests and validates JWT tokens
+ * Intercepts requests and validates JWT tokens. The principal is an AuthenticatedUser built from
+ * the token's uid, subject and role claims; the token version is checked against the cached user
+ * snapshot, so authenticating a request normally needs no database read.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -36,6 +39,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                     HttpServletResponse response, 
@@ -43,24 +49,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
             String requestUri = request.getRequestURI();
-            logger.info("Processing request: {} with JWT: {}", requestUri, (jwt != null ? "PRESENT" : "MISSING"));
+            logger.debug("Processing request: {} with JWT: {}", requestUri, (jwt != null ? "PRESENT" : "MISSING"));
 
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                String username = jwtTokenProvider.getUsernameFromToken(jwt);
-                String role = jwtTokenProvider.getRoleFromToken(jwt);
+            Optional<JwtClaims> claims = StringUtils.hasText(jwt) ? jwtTokenProvider.parseToken(jwt) : Optional.empty();
+            if (claims.isPresent()) {
+                Optional<AuthenticatedUser> principal = toPrincipal(claims.get());
+                if (principal.isPresent()) {
+                    AuthenticatedUser user = principal.get();
 
-                // Load user from database
-                Optional<User> userOptional = userRepository.findByUsername(username);
-                
-                if (userOptional.isPresent()) {
-                    User user = userOptional.get();
-                    
                     // Create authentication token
                     UsernamePasswordAuthenticationToken authentication = 
                             new UsernamePasswordAuthenticationToken(
                                     user, 
                                     null, 
-                                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+                                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.role()))
                             );
                     
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -68,12 +70,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     // Set authentication in security context
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                     
-                    logger.info("Set authentication for user: {} with role: {} for URI: {}", username, role, requestUri);
-                } else {
-                    logger.warn("User not found for username: {}", username);
+                    logger.debug("Set authentication for user: {} with role: {} for URI: {}",
+                            user.username(), user.role(), requestUri);
                 }
             } else if (StringUtils.hasText(jwt)) {
-                logger.warn("JWT validation failed for URI: {}", requestUri);
+                logger.debug("JWT validation failed for URI: {}", requestUri);
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -82,6 +83,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Principal from the claims, once the user snapshot confirms the user still exists and the
+     * token's version is current (a role change bumps it); tokens issued before the uid claim
+     * existed are resolved by username instead
+     */
+    private Optional<AuthenticatedUser> toPrincipal(JwtClaims claims) {
+        if (claims.userId() == null) {
+            Optional<User> user = userRepository.findByUsername(claims.username());
+            if (user.isEmpty()) {
+                logger.warn("User not found for username: {}", claims.username());
+            }
+            return user.map(u -> new AuthenticatedUser(u.getId(), u.getUsername(), u.getRole()));
+        }
+        Optional<User> user = userSnapshotCache.get(claims.userId());
+        if (user.isEmpty() || user.get().getTokenVersion() != claims.tokenVersion()) {
+            logger.debug("Rejected token of deleted or changed user: {}", claims.username());
+            return Optional.empty();
+        }
+        return Optional.of(new AuthenticatedUser(claims.userId(), claims.username(), claims.role()));
+    }
+
     /**
      * Extract JWT token from Authorization header
      */
@@ -0,0 +1,12 @@
+package com.cloudapp.socialforum.security;
+
+import java.time.Instant;
+
+/**
+ * Verified contents of a JWT, produced once per token by JwtTokenProvider
+ *
+ * @param userId null for tokens issued before the uid claim existed
+ * @param tokenVersion the user's token version at issue time, 0 when the claim is absent
+ */
+public record JwtClaims(Long userId, String username, String role, long tokenVersion, Instant expiresAt) {
+}
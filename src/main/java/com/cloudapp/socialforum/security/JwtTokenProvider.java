@@ -1,19 +1,36 @@
 package com.cloudapp.socialforum.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.cloudapp.socialforum.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Optional;
 
 /**
  * JWT Token Provider for generating and validating JWT tokens
- * Uses HS256 algorithm with a secure secret key
+ * Uses HS256 algorithm with a secure secret key. The key and parser are built once at startup.
+ * Verified tokens are cached by their SHA-256 digest, so a client re-sending the same token
+ * skips signature verification; an entry never outlives the token's own expiry.
  */
 @Component
 public class JwtTokenProvider {
@@ -28,18 +45,65 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}") // 24 hours in milliseconds
     private long jwtExpirationMs;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** Time used for token expiry, both when verifying and when caching; tests move it forward */
+    Clock clock = Clock.systemUTC();
+
+    private SecretKey key;
+    private JwtParser parser;
+    private Cache<String, JwtClaims> verified;
+
+    @PostConstruct
+    public void init() {
+        key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(key).clock(() -> Date.from(clock.instant())).build();
+        long ttlNanos = Duration.ofSeconds(cacheTtlSeconds).toNanos();
+        verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String digest, JwtClaims claims, long currentTime) {
+                        long untilExpiry = Duration.between(clock.instant(), claims.expiresAt()).toNanos();
+                        return Math.max(0, Math.min(ttlNanos, untilExpiry));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, JwtClaims claims, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, JwtClaims claims, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "verifiedTokens");
+    }
+
     /**
      * Generate JWT token for authenticated user
      */
-    public String generateToken(String username, String role) {
+    public String generateToken(User user) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
-                .subject(username)
-                .claim("role", role)
+                .subject(user.getUsername())
+                .claim("uid", user.getId())
+                .claim("role", user.getRole())
+                .claim("ver", user.getTokenVersion())
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(key, Jwts.SIG.HS256)
@@ -47,59 +111,58 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Extract username from JWT token
-     */
-    public String getUsernameFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.getSubject();
-    }
-
-    /**
-     * Extract role from JWT token
+     * Verify the token and return its claims, or empty if it is invalid or expired
+     * The token is parsed and verified at most once while its digest stays cached. A cached entry
+     * past the token's expiry is never served, even if the cache has not evicted it yet.
      */
-    public String getRoleFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.get("role", String.class);
+    public Optional<JwtClaims> parseToken(String token) {
+        String digest = digest(token);
+        JwtClaims cached = verified.getIfPresent(digest);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(clock.instant())) {
+                return Optional.of(cached);
+            }
+            verified.invalidate(digest);
+            return Optional.empty();
+        }
+        Optional<JwtClaims> claims = verify(token);
+        claims.ifPresent(c -> verified.put(digest, c));
+        return claims;
     }
 
-    /**
-     * Validate JWT token
-     */
-    public boolean validateToken(String token) {
+    private Optional<JwtClaims> verify(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() == null) {
+                logger.warn("Rejected JWT token without expiration");
+                return Optional.empty();
+            }
+            Long version = claims.get("ver", Long.class);
+            return Optional.of(new JwtClaims(claims.get("uid", Long.class), claims.getSubject(),
+                    claims.get("role", String.class), version != null ? version : 0L,
+                    claims.getExpiration().toInstant()));
         } catch (SecurityException ex) {
-            logger.error("Invalid JWT signature: {}", ex.getMessage());
+            logger.warn("Invalid JWT signature: {}", ex.getMessage());
         } catch (MalformedJwtException ex) {
-            logger.error("Invalid JWT token: {}", ex.getMessage());
+            logger.warn("Invalid JWT token: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
-            logger.error("Expired JWT token: {}", ex.getMessage());
+            logger.debug("Expired JWT token: {}", ex.getMessage());
         } catch (UnsupportedJwtException ex) {
-            logger.error("Unsupported JWT token: {}", ex.getMessage());
+            logger.warn("Unsupported JWT token: {}", ex.getMessage());
+        } catch (JwtException ex) {
+            logger.warn("Rejected JWT token: {}", ex.getMessage());
         } catch (IllegalArgumentException ex) {
-            logger.error("JWT claims string is empty: {}", ex.getMessage());
+            logger.warn("JWT claims string is empty: {}", ex.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return false;
     }
 }
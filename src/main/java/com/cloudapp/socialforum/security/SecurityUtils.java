@@ -0,0 +1,31 @@
+package com.cloudapp.socialforum.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+/**
+ * Helpers for reading the authenticated principal set by JwtAuthenticationFilter
+ * The principal comes from the token alone; load the full User through UserSnapshotCache.
+ */
+public final class SecurityUtils {
+
+    private SecurityUtils() {
+    }
+
+    /**
+     * Current principal, or empty for anonymous requests
+     */
+    public static Optional<AuthenticatedUser> currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return Optional.empty();
+    }
+
+    public static Optional<Long> currentUserId() {
+        return currentPrincipal().map(AuthenticatedUser::id);
+    }
+}
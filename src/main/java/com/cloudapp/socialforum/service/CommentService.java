@@ -1,16 +1,37 @@
 package com.cloudapp.socialforum.service;
 
+import com.cloudapp.socialforum.dto.CommentDTO;
+import com.cloudapp.socialforum.dto.CommentImportItem;
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.dto.PageCursor;
 import com.cloudapp.socialforum.model.Comment;
 import com.cloudapp.socialforum.model.Post;
 import com.cloudapp.socialforum.model.User;
 import com.cloudapp.socialforum.repository.CommentRepository;
+import com.cloudapp.socialforum.repository.PostRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -18,42 +39,225 @@ public class CommentService {
 
     private static final Logger logger = LoggerFactory.getLogger(CommentService.class);
 
+    private static final String IMPORT_SQL =
+            "INSERT INTO comments (content, post_id, user_id, parent_id, reply_count, created_at) VALUES (?, ?, ?, ?, 0, ?)";
+    private static final String IMPORT_POST_COUNTER_SQL =
+            "UPDATE posts SET comment_count = comment_count + ?, revision = revision + 1 WHERE id = ?";
+    private static final String IMPORT_REPLY_COUNTER_SQL =
+            "UPDATE comments SET reply_count = reply_count + ? WHERE id = ?";
+
     @Autowired
     private CommentRepository commentRepository;
 
     @Autowired
-    private PostService postService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PostRepository postRepository;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FeedPageCache feedPageCache;
+
+    @Autowired
+    private TrendingService trendingService;
+
     @Transactional
-    public Comment createComment(String content, Long postId, Long userId) {
+    public CommentDTO createComment(String content, Long postId, Long userId) {
+        return createComment(content, postId, userId, null);
+    }
+
+    /**
+     * Create a comment, or a reply when parentId is set
+     * Replies to a reply are attached to its top-level comment, keeping threads one level deep.
+     */
+    @Transactional
+    public CommentDTO createComment(String content, Long postId, Long userId, Long parentId) {
         logger.info("Creating comment on post ID: {} by user ID: {}", postId, userId);
-        Post post = postService.getPostById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-        
-        User user = userService.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        if (postId == null || userId == null) {
+            throw new IllegalArgumentException("Post ID and user ID are required");
+        }
+        // Lazy references: the insert's foreign keys validate post and user instead of two SELECTs
+        Post post = postRepository.getReferenceById(postId);
+        User user = userService.getReference(userId);
+
+        Long threadId = null;
+        if (parentId != null) {
+            Comment parent = commentRepository.findById(parentId)
+                    .orElseThrow(() -> new IllegalArgumentException("Parent comment not found"));
+            if (!postId.equals(parent.getPost().getId())) {
+                throw new IllegalArgumentException("Parent comment belongs to another post");
+            }
+            threadId = parent.getParentId() != null ? parent.getParentId() : parent.getId();
+        }
 
         Comment comment = new Comment();
         comment.setContent(content);
         comment.setPost(post);
         comment.setUser(user);
+        comment.setParentId(threadId);
 
-        Comment savedComment = commentRepository.save(comment);
+        Comment savedComment;
+        try {
+            savedComment = commentRepository.save(comment);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Post or user not found");
+        }
+        if (threadId != null) {
+            commentRepository.incrementReplyCount(threadId);
+        }
+        postRepository.incrementCommentCount(postId);
+        feedPageCache.patchCommentCount(postId, 1);
+        trendingService.recordComment(postId, 1);
         logger.info("Comment created successfully with ID: {}", savedComment.getId());
         
-        return savedComment;
+        return CommentDTO.fromComment(savedComment);
+    }
+
+    /**
+     * Bulk import with JDBC batch inserts in one transaction
+     * Post comment counters and reply counters are raised once per post/parent afterwards.
+     * Parents are checked up front in one query (parent_id has no foreign key): they must exist
+     * and belong to the same post, and a reply to a reply is attached to the thread's top-level
+     * comment, as in createComment. Any unknown post, user or parent fails the whole import.
+     */
+    @Transactional
+    public int importComments(List<CommentImportItem> items) {
+        Map<Long, Long[]> parents = loadParents(items);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(ZoneId.of("Asia/Kuala_Lumpur")));
+        List<Object[]> rows = new ArrayList<>(items.size());
+        Map<Long, Integer> perPost = new HashMap<>();
+        Map<Long, Integer> perParent = new HashMap<>();
+        for (CommentImportItem item : items) {
+            Long threadId = null;
+            if (item.getParentId() != null) {
+                Long[] parent = parents.get(item.getParentId());
+                if (parent == null) {
+                    throw new IllegalArgumentException("Parent comment not found: " + item.getParentId());
+                }
+                if (!parent[0].equals(item.getPostId())) {
+                    throw new IllegalArgumentException("Parent comment " + item.getParentId() + " belongs to another post");
+                }
+                threadId = parent[1] != null ? parent[1] : item.getParentId();
+                perParent.merge(threadId, 1, Integer::sum);
+            }
+            rows.add(new Object[]{item.getContent(), item.getPostId(), item.getUserId(), threadId, now});
+            perPost.merge(item.getPostId(), 1, Integer::sum);
+        }
+        try {
+            jdbcTemplate.batchUpdate(IMPORT_SQL, rows);
+            jdbcTemplate.batchUpdate(IMPORT_POST_COUNTER_SQL, perPost.entrySet().stream()
+                    .map(e -> new Object[]{e.getValue(), e.getKey()}).collect(Collectors.toList()));
+            jdbcTemplate.batchUpdate(IMPORT_REPLY_COUNTER_SQL, perParent.entrySet().stream()
+                    .map(e -> new Object[]{e.getValue(), e.getKey()}).collect(Collectors.toList()));
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Import references an unknown post, user or parent comment");
+        }
+        feedPageCache.invalidateAll();
+        logger.info("Imported {} comments across {} posts", items.size(), perPost.size());
+        return items.size();
+    }
+
+    /**
+     * Parent id to {post id, parent's own parent id} for every parent the import references
+     */
+    private Map<Long, Long[]> loadParents(List<CommentImportItem> items) {
+        Set<Long> parentIds = items.stream()
+                .map(CommentImportItem::getParentId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Long[]> parents = new HashMap<>();
+        if (!parentIds.isEmpty()) {
+            for (Object[] row : commentRepository.findThreadRefs(parentIds)) {
+                parents.put((Long) row[0], new Long[]{(Long) row[1], (Long) row[2]});
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * One page of top-level comments, oldest first
+     * Keyset on (created_at, id), so the cost does not grow with the number of comments
+     */
+    public CursorPage<CommentDTO> getComments(Long postId, String after, int limit) {
+        PageCursor cursor = PageCursor.decode(after);
+        Pageable pageable = PageRequest.of(0, limit);
+        return toCursorPage(cursor == null
+                ? commentRepository.findTopLevelFirstPage(postId, pageable)
+                : commentRepository.findTopLevelPageAfter(postId, cursor.getCreatedAt(), cursor.getId(), pageable));
+    }
+
+    public CursorPage<CommentDTO> getReplies(Long commentId, String after, int limit) {
+        PageCursor cursor = PageCursor.decode(after);
+        Pageable pageable = PageRequest.of(0, limit);
+        return toCursorPage(cursor == null
+                ? commentRepository.findRepliesFirstPage(commentId, pageable)
+                : commentRepository.findRepliesPageAfter(commentId, cursor.getCreatedAt(), cursor.getId(), pageable));
+    }
+
+    /**
+     * Latest top-level comments per post for a whole feed page, newest first, from one windowed query
+     * Posts without comments are absent from the map
+     */
+    public Map<Long, List<CommentDTO>> getCommentPreviews(Collection<Long> postIds, int perPost) {
+        if (postIds.isEmpty() || perPost < 1) {
+            return Collections.emptyMap();
+        }
+        Map<Long, List<CommentDTO>> previews = new HashMap<>();
+        for (Object[] row : commentRepository.findLatestTopLevelRows(postIds, perPost)) {
+            CommentDTO dto = new CommentDTO(toLong(row[0]), toLong(row[1]), toLong(row[2]), (String) row[3],
+                    toLocalDateTime(row[4]), row[5] != null ? ((Number) row[5]).intValue() : 0,
+                    toLong(row[6]), (String) row[7], (String) row[8], (String) row[9]);
+            previews.computeIfAbsent(dto.getPostId(), id -> new ArrayList<>()).add(dto);
+        }
+        return previews;
+    }
+
+    public List<CommentDTO> getAllCommentsDTO() {
+        return commentRepository.findAllCommentDTOs();
+    }
+
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
     }
 
-    public List<Comment> getCommentsByPostId(Long postId) {
-        return commentRepository.findByPostIdOrderByCreatedAtAsc(postId);
+    private CursorPage<CommentDTO> toCursorPage(Slice<CommentDTO> slice) {
+        List<CommentDTO> comments = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !comments.isEmpty()) {
+            CommentDTO last = comments.get(comments.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(comments, nextCursor, nextCursor != null);
     }
 
+    /**
+     * Deleting a top-level comment removes its replies too; counters drop by everything removed
+     */
     @Transactional
     public void deleteComment(Long id) {
         logger.info("Deleting comment with ID: {}", id);
-        commentRepository.deleteById(id);
+        commentRepository.findById(id).ifPresent(comment -> {
+            Long postId = comment.getPost().getId();
+            int removed = 1;
+            if (comment.getParentId() != null) {
+                commentRepository.decrementReplyCount(comment.getParentId());
+            } else {
+                removed += commentRepository.deleteReplies(comment.getId());
+            }
+            commentRepository.delete(comment);
+            postRepository.decrementCommentCount(postId, removed);
+            feedPageCache.patchCommentCount(postId, -removed);
+            trendingService.recordComment(postId, -removed);
+        });
     }
 }
@@ -0,0 +1,95 @@
+package com.cloudapp.socialforum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Independent reads of one request run concurrently on the bounded fan-out pool under one deadline
+ * A part the pool rejects, that fails, or that is not done by the deadline is cancelled and listed
+ * as missing instead of failing the request; timeouts are counted in fanout.timeouts.
+ */
+@Component
+public class FanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanOut.class);
+
+    @Autowired
+    @Qualifier("fanOutExecutor")
+    private ThreadPoolTaskExecutor fanOutExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * @param name tags the timeout counter and log lines, e.g. "search"
+     */
+    public Call begin(String name, long deadlineMs) {
+        return new Call(name, deadlineMs);
+    }
+
+    /**
+     * One request's fan-out; used from the request thread only
+     */
+    public final class Call {
+        private final String name;
+        private final long deadlineMs;
+        private final long deadline;
+        private final List<String> missing = new ArrayList<>();
+
+        private Call(String name, long deadlineMs) {
+            this.name = name;
+            this.deadlineMs = deadlineMs;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        }
+
+        public <T> CompletableFuture<T> submit(Supplier<T> task) {
+            try {
+                return CompletableFuture.supplyAsync(task, fanOutExecutor);
+            } catch (Exception e) {
+                // Pool saturated: the part is reported missing instead of queueing the request
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        /**
+         * Wait until the shared deadline; null means the part timed out or failed
+         */
+        public <T> T await(CompletableFuture<T> future, String part) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                return future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (TimeoutException e) {
+                Counter.builder("fanout.timeouts")
+                        .tag("call", name)
+                        .tag("part", part)
+                        .register(meterRegistry)
+                        .increment();
+                logger.warn("{} part '{}' missed the {} ms deadline", name, part, deadlineMs);
+            } catch (Exception e) {
+                logger.warn("{} part '{}' failed: {}", name, part, e.toString());
+            }
+            future.cancel(true);
+            missing.add(part);
+            return null;
+        }
+
+        public List<String> missing() {
+            return missing;
+        }
+    }
+}
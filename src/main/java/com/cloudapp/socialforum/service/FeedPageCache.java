@@ -0,0 +1,209 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of fully assembled feed pages (DTOs with media URLs already resolved)
+ * Bounded by an estimated byte weight; TTL stays well below the 1 hour pre-signed URL validity.
+ * Invalidations and counter patches apply after the writing transaction commits; patches swap
+ * in copies, never mutating a DTO another request may be holding.
+ */
+@Component
+public class FeedPageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedPageCache.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${feed.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feed.cache.max-weight-bytes:16777216}")
+    private long maxWeightBytes;
+
+    @Value("${feed.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private Cache<String, CachedPage> cache;
+    private final AtomicLong writes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String key, CachedPage page) -> page.weight)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "feedPages");
+        logger.info("Feed page cache enabled: {} (max {} bytes, ttl {}s)", enabled, maxWeightBytes, ttlSeconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<PostDTO> getOffsetPage(int page, int size, Supplier<Page<PostDTO>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return (Page<PostDTO>) get("offset:" + page + ":" + size, () -> {
+            Page<PostDTO> value = loader.get();
+            return new CachedPage(value, value.getContent(), true, page == 0);
+        }).value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public CursorPage<PostDTO> getCursorPage(String after, int size, Supplier<CursorPage<PostDTO>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        boolean head = after == null || after.isBlank();
+        return (CursorPage<PostDTO>) get("cursor:" + (head ? "" : after) + ":" + size, () -> {
+            CursorPage<PostDTO> value = loader.get();
+            return new CachedPage(value, value.getItems(), false, head);
+        }).value;
+    }
+
+    /**
+     * Total post count for cursor responses with includeTotal; invalidated like an offset page
+     */
+    public long getTotal(Supplier<Long> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return (Long) get("total", () -> new CachedPage(loader.get(), List.of(), true, false)).value;
+    }
+
+    /**
+     * A new post shifts every offset page and prepends to the head cursor page;
+     * cursor pages further down are anchored on older posts and stay valid
+     */
+    public void invalidateForNewPost() {
+        TransactionCallbacks.afterCommit(() -> invalidate(page -> page.offset || page.head));
+    }
+
+    public void invalidateForDeletedPost(Long postId) {
+        TransactionCallbacks.afterCommit(() -> invalidate(page -> page.offset || page.contains(postId)));
+    }
+
+    public void patchLikeCount(Long postId, long likeCount) {
+        patchCachedPosts(postId, dto -> dto.setLikesCount((int) likeCount));
+    }
+
+    public void patchCommentCount(Long postId, int delta) {
+        patchCachedPosts(postId, dto -> dto.setCommentsCount(Math.max(0, dto.getCommentsCount() + delta)));
+    }
+
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> invalidate(page -> true));
+    }
+
+    private void invalidate(Predicate<CachedPage> affected) {
+        writes.incrementAndGet();
+        cache.asMap().values().removeIf(affected);
+    }
+
+    /**
+     * Cached entry or a fresh load; a load that overlapped an invalidation is not cached,
+     * since it may have read the rows from before that write. Counter patches do not count:
+     * at worst a count lags for one TTL, and likes are too frequent to block caching on.
+     */
+    private CachedPage get(String key, Supplier<CachedPage> loader) {
+        CachedPage cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = writes.get();
+        CachedPage loaded = loader.get();
+        if (writes.get() == generation) {
+            cache.asMap().putIfAbsent(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Swap every cached page holding the post for a copy with a patched copy of the post;
+     * cached DTOs are shared with requests in flight, so they are never modified in place
+     */
+    private void patchCachedPosts(Long postId, Consumer<PostDTO> patch) {
+        if (!enabled) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> cache.asMap().forEach((key, page) -> {
+            if (page.contains(postId)) {
+                cache.asMap().replace(key, page, page.patched(postId, patch));
+            }
+        }));
+    }
+
+    private static final class CachedPage {
+        private final Object value;
+        private final List<PostDTO> posts;
+        private final boolean offset;
+        private final boolean head;
+        private final int weight;
+
+        private CachedPage(Object value, List<PostDTO> posts, boolean offset, boolean head) {
+            this.value = value;
+            this.posts = posts;
+            this.offset = offset;
+            this.head = head;
+            this.weight = estimateWeight(posts);
+        }
+
+        private CachedPage patched(Long postId, Consumer<PostDTO> patch) {
+            List<PostDTO> copies = new ArrayList<>(posts.size());
+            for (PostDTO dto : posts) {
+                if (postId.equals(dto.getId())) {
+                    PostDTO copy = dto.copy();
+                    patch.accept(copy);
+                    copies.add(copy);
+                } else {
+                    copies.add(dto);
+                }
+            }
+            Object patchedValue = value instanceof Page<?> page
+                    ? new PageImpl<>(copies, page.getPageable(), page.getTotalElements())
+                    : new CursorPage<>(copies, ((CursorPage<?>) value).getNextCursor(),
+                            ((CursorPage<?>) value).isHasMore());
+            return new CachedPage(patchedValue, copies, offset, head);
+        }
+
+        private boolean contains(Long postId) {
+            return posts.stream().anyMatch(dto -> postId.equals(dto.getId()));
+        }
+
+        private static int estimateWeight(List<PostDTO> posts) {
+            int weight = 256;
+            for (PostDTO dto : posts) {
+                weight += 256 + 2 * (length(dto.getContent()) + length(dto.getImageUrl())
+                        + length(dto.getVideoUrl()) + length(dto.getShareToken()));
+            }
+            return weight;
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
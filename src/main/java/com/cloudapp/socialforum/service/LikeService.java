@@ -1,19 +1,23 @@
 package com.cloudapp.socialforum.service;
 
-import com.cloudapp.socialforum.model.Like;
-import com.cloudapp.socialforum.model.Post;
-import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.dto.PostViewerState;
 import com.cloudapp.socialforum.repository.LikeRepository;
 import com.cloudapp.socialforum.repository.PostRepository;
-import com.cloudapp.socialforum.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @Transactional(readOnly = true)
@@ -28,54 +32,174 @@ public class LikeService {
     private PostRepository postRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private FeedPageCache feedPageCache;
 
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private LikeWriteBehindBuffer likeWriteBehindBuffer;
+
+    @Autowired
+    private LikedPostIndex likedPostIndex;
+
+    /**
+     * Unlike if liked, like otherwise; two statements at most, never a unique-key error
+     */
     @Transactional
     public Map<String, Object> toggleLike(Long postId, Long userId) {
-        logger.info("Toggle like for post ID: {} by user ID: {}", postId, userId);
-        
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
-        
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+        logger.debug("Toggle like for post ID: {} by user ID: {}", postId, userId);
+        if (likeWriteBehindBuffer.isEnabled()) {
+            return isLikedForWrite(postId, userId) ? unlike(postId, userId) : like(postId, userId);
+        }
+        if (likeRepository.deleteIfPresent(userId, postId) == 1) {
+            likedPostIndex.recordChange(userId, postId, false);
+            return likeResponse(postId, false, onLikeRemoved(postId), true);
+        }
+        return like(postId, userId);
+    }
 
-        Map<String, Object> response = new HashMap<>();
-        
-        if (likeRepository.existsByUserIdAndPostId(userId, postId)) {
-            // Unlike
-            likeRepository.deleteByUserIdAndPostId(userId, postId);
-            long likeCount = likeRepository.countByPostId(postId);
-            
-            response.put("liked", false);
-            response.put("likeCount", likeCount);
-            response.put("message", "Post unliked successfully");
-            
-            logger.info("Post {} unliked by user {}. New like count: {}", postId, userId, likeCount);
+    /**
+     * Idempotent like: INSERT IGNORE, then bump the counter only when a row was added
+     */
+    @Transactional
+    public Map<String, Object> like(Long postId, Long userId) {
+        if (likeWriteBehindBuffer.isEnabled()) {
+            Map<String, Object> buffered = bufferChange(postId, userId, true);
+            if (buffered != null) {
+                return buffered;
+            }
+        }
+        boolean changed = likeRepository.insertIfAbsent(userId, postId,
+                LocalDateTime.now(ZoneId.of("Asia/Kuala_Lumpur"))) == 1;
+        long likeCount;
+        if (changed) {
+            postRepository.incrementLikeCount(postId);
+            likedPostIndex.recordChange(userId, postId, true);
+            likeCount = getLikeCount(postId);
+            feedPageCache.patchLikeCount(postId, likeCount);
+            trendingService.recordLike(postId, true);
+        } else if (likeRepository.existsByUserIdAndPostId(userId, postId)) {
+            likeCount = getLikeCount(postId);
         } else {
-            // Like
-            Like like = new Like();
-            like.setPost(post);
-            like.setUser(user);
-            likeRepository.save(like);
-            
-            long likeCount = likeRepository.countByPostId(postId);
-            
-            response.put("liked", true);
-            response.put("likeCount", likeCount);
-            response.put("message", "Post liked successfully");
-            
-            logger.info("Post {} liked by user {}. New like count: {}", postId, userId, likeCount);
+            throw new IllegalArgumentException("Post or user not found");
         }
-        
+        return likeResponse(postId, true, likeCount, changed);
+    }
+
+    /**
+     * Idempotent unlike: conditional DELETE, counter only moves when a row was removed
+     */
+    @Transactional
+    public Map<String, Object> unlike(Long postId, Long userId) {
+        if (likeWriteBehindBuffer.isEnabled()) {
+            Map<String, Object> buffered = bufferChange(postId, userId, false);
+            if (buffered != null) {
+                return buffered;
+            }
+        }
+        boolean changed = likeRepository.deleteIfPresent(userId, postId) == 1;
+        if (changed) {
+            likedPostIndex.recordChange(userId, postId, false);
+        }
+        long likeCount = changed ? onLikeRemoved(postId) : getLikeCount(postId);
+        return likeResponse(postId, false, likeCount, changed);
+    }
+
+    /**
+     * Write-behind path: decide the change against DB + pending state and queue it
+     * Returns null when the queue is full so the caller writes synchronously.
+     */
+    private Map<String, Object> bufferChange(Long postId, Long userId, boolean liked) {
+        int persistedCount = postRepository.findLikeCountById(postId)
+                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
+        boolean changed = isLikedForWrite(postId, userId) != liked;
+        if (changed && !likeWriteBehindBuffer.offer(userId, postId, liked, liked ? 1 : -1)) {
+            logger.warn("Like write-behind queue full, writing post {} synchronously", postId);
+            return null;
+        }
+        long likeCount = Math.max(0, persistedCount + likeWriteBehindBuffer.getPendingDelta(postId));
+        if (changed) {
+            likedPostIndex.recordChange(userId, postId, liked);
+            feedPageCache.patchLikeCount(postId, likeCount);
+            trendingService.recordLike(postId, liked);
+        }
+        return likeResponse(postId, liked, likeCount, changed);
+    }
+
+    /**
+     * Liked state for a write decision: the pending intent, else the database
+     * The bitmap can lag likes made on other instances, so it only serves reads.
+     */
+    private boolean isLikedForWrite(Long postId, Long userId) {
+        Boolean pending = likeWriteBehindBuffer.getPendingState(userId, postId);
+        return pending != null ? pending : likeRepository.existsByUserIdAndPostId(userId, postId);
+    }
+
+    private long onLikeRemoved(Long postId) {
+        postRepository.decrementLikeCount(postId);
+        long likeCount = getLikeCount(postId);
+        feedPageCache.patchLikeCount(postId, likeCount);
+        trendingService.recordLike(postId, false);
+        return likeCount;
+    }
+
+    private Map<String, Object> likeResponse(Long postId, boolean liked, long likeCount, boolean changed) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("liked", liked);
+        response.put("likeCount", likeCount);
+        response.put("changed", changed);
+        response.put("message", liked ? "Post liked successfully" : "Post unliked successfully");
+        logger.debug("Post {} liked={} changed={} likeCount={}", postId, liked, changed, likeCount);
         return response;
     }
 
     public long getLikeCount(Long postId) {
-        return likeRepository.countByPostId(postId);
+        long persisted = postRepository.findLikeCountById(postId).orElse(0);
+        return Math.max(0, persisted + likeWriteBehindBuffer.getPendingDelta(postId));
     }
 
     public boolean isLikedByUser(Long postId, Long userId) {
-        return likeRepository.existsByUserIdAndPostId(userId, postId);
+        Boolean pending = likeWriteBehindBuffer.getPendingState(userId, postId);
+        if (pending != null) {
+            return pending;
+        }
+        return likedPostIndex.canAnswer(List.of(postId))
+                ? likedPostIndex.isLiked(userId, postId)
+                : likeRepository.existsByUserIdAndPostId(userId, postId);
+    }
+
+    /**
+     * Liked-by-me plus counters for a batch of posts: one IN query on likes, one on posts
+     * Unknown post IDs are omitted; a null userId yields liked=false everywhere
+     */
+    public List<PostViewerState> getViewerStates(Collection<Long> postIds, Long userId) {
+        List<PostViewerState> states = postRepository.findViewerStates(postIds);
+        Set<Long> liked = getLikedPostIds(postIds, userId);
+        states.forEach(state -> {
+            state.setLiked(liked.contains(state.getPostId()));
+            state.setLikeCount((int) Math.max(0, state.getLikeCount() + likeWriteBehindBuffer.getPendingDelta(state.getPostId())));
+        });
+        return states;
+    }
+
+    public Set<Long> getLikedPostIds(Collection<Long> postIds, Long userId) {
+        if (userId == null || postIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> liked = likedPostIndex.canAnswer(postIds)
+                ? likedPostIndex.filterLiked(userId, postIds)
+                : new HashSet<>(likeRepository.findLikedPostIds(userId, postIds));
+        for (Long postId : postIds) {
+            Boolean pending = likeWriteBehindBuffer.getPendingState(userId, postId);
+            if (pending != null) {
+                if (pending) {
+                    liked.add(postId);
+                } else {
+                    liked.remove(postId);
+                }
+            }
+        }
+        return liked;
     }
 }
@@ -0,0 +1,246 @@
+package com.cloudapp.socialforum.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional write-behind path for likes (like.write-behind.enabled)
+ * Like/unlike intents go into a bounded lock-free queue plus a per-(user, post) overlay that reads
+ * merge, so a user sees their own like immediately. The flusher collapses each window to the last
+ * intent per (user, post) and applies it with JDBC batch INSERT IGNORE / DELETE and one counter
+ * update per post, all in one transaction. Counters move by the rows that actually changed.
+ * Once a batch commits, each change is applied to LikedPostIndex again, so a bitmap loaded from
+ * the database while the change was still queued picks it up.
+ */
+@Component
+public class LikeWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LikeWriteBehindBuffer.class);
+
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO likes (user_id, post_id, created_at) VALUES (?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM likes WHERE user_id = ? AND post_id = ?";
+    private static final String COUNTER_SQL =
+            "UPDATE posts SET like_count = GREATEST(like_count + ?, 0), revision = revision + 1 WHERE id = ?";
+    private static final String RECOUNT_SQL =
+            "UPDATE posts SET like_count = (SELECT COUNT(*) FROM likes WHERE post_id = ?), "
+            + "revision = revision + 1 WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LikedPostIndex likedPostIndex;
+
+    @Value("${like.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${like.write-behind.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${like.write-behind.max-batch:5000}")
+    private int maxBatch;
+
+    private final Queue<LikeEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Map<LikeKey, Boolean> pendingState = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> pendingDelta = new ConcurrentHashMap<>();
+
+    private Timer flushTimer;
+    private DistributionSummary batchSize;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("likes.writebehind.queue.depth", depth, AtomicInteger::get)
+                .description("Like events waiting to be flushed")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("likes.writebehind.flush.latency")
+                .description("Time to write one batch of like events")
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("likes.writebehind.batch.size")
+                .description("Distinct (user, post) changes per flush")
+                .register(meterRegistry);
+        logger.info("Like write-behind enabled: {} (queue capacity {})", enabled, queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Record an intent whose effect on the like count was already decided by the caller
+     * @return false when the queue is full; the caller should write synchronously instead
+     */
+    public boolean offer(Long userId, Long postId, boolean liked, int delta) {
+        if (depth.incrementAndGet() > queueCapacity) {
+            depth.decrementAndGet();
+            return false;
+        }
+        LikeKey key = new LikeKey(userId, postId);
+        pendingState.put(key, liked);
+        if (delta != 0) {
+            pendingDelta.computeIfAbsent(postId, id -> new LongAdder()).add(delta);
+        }
+        queue.add(new LikeEvent(key, liked, delta));
+        return true;
+    }
+
+    /**
+     * Unflushed like state for (user, post), or null when nothing is pending
+     */
+    public Boolean getPendingState(Long userId, Long postId) {
+        return pendingState.get(new LikeKey(userId, postId));
+    }
+
+    public long getPendingDelta(Long postId) {
+        LongAdder delta = pendingDelta.get(postId);
+        return delta != null ? delta.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${like.write-behind.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    public synchronized int flush() {
+        List<LikeEvent> drained = new ArrayList<>();
+        LikeEvent event;
+        while (drained.size() < maxBatch && (event = queue.poll()) != null) {
+            depth.decrementAndGet();
+            drained.add(event);
+        }
+        if (drained.isEmpty()) {
+            return 0;
+        }
+
+        Map<LikeKey, Boolean> latest = new LinkedHashMap<>();
+        drained.forEach(e -> latest.put(e.key(), e.liked()));
+        long started = System.nanoTime();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> write(latest));
+            latest.forEach((key, liked) -> likedPostIndex.recordChange(key.userId(), key.postId(), liked));
+        } catch (Exception e) {
+            logger.error("Batched like flush failed, retrying {} changes one by one: {}", latest.size(), e.getMessage());
+            latest.forEach(this::writeSingle);
+        }
+        flushTimer.record(System.nanoTime() - started, java.util.concurrent.TimeUnit.NANOSECONDS);
+        batchSize.record(latest.size());
+
+        // Newer intents for the same key keep their overlay entry
+        latest.forEach(pendingState::remove);
+        for (LikeEvent drainedEvent : drained) {
+            if (drainedEvent.delta() != 0) {
+                LongAdder delta = pendingDelta.get(drainedEvent.key().postId());
+                if (delta != null) {
+                    delta.add(-drainedEvent.delta());
+                }
+            }
+        }
+        pendingDelta.values().removeIf(delta -> delta.sum() == 0);
+        return latest.size();
+    }
+
+    private void write(Map<LikeKey, Boolean> changes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(ZoneId.of("Asia/Kuala_Lumpur")));
+        List<LikeKey> likes = new ArrayList<>();
+        List<LikeKey> unlikes = new ArrayList<>();
+        changes.forEach((key, liked) -> (liked ? likes : unlikes).add(key));
+
+        Map<Long, Long> counterDeltas = new HashMap<>();
+        Set<Long> recount = new HashSet<>();
+        int[] inserted = jdbcTemplate.batchUpdate(INSERT_SQL,
+                likes.stream().map(k -> new Object[]{k.userId(), k.postId(), now}).toList());
+        collect(likes, inserted, 1, counterDeltas, recount);
+        int[] deleted = jdbcTemplate.batchUpdate(DELETE_SQL,
+                unlikes.stream().map(k -> new Object[]{k.userId(), k.postId()}).toList());
+        collect(unlikes, deleted, -1, counterDeltas, recount);
+
+        recount.forEach(counterDeltas::remove);
+        jdbcTemplate.batchUpdate(COUNTER_SQL, counterDeltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList());
+        jdbcTemplate.batchUpdate(RECOUNT_SQL, recount.stream().map(id -> new Object[]{id, id}).toList());
+    }
+
+    /**
+     * Sum rows changed per post; drivers that report SUCCESS_NO_INFO get an exact recount instead
+     */
+    private void collect(List<LikeKey> keys, int[] results, int sign,
+                         Map<Long, Long> counterDeltas, Set<Long> recount) {
+        for (int i = 0; i < keys.size(); i++) {
+            Long postId = keys.get(i).postId();
+            if (results[i] == Statement.SUCCESS_NO_INFO) {
+                recount.add(postId);
+            } else if (results[i] > 0) {
+                counterDeltas.merge(postId, (long) sign, Long::sum);
+            }
+        }
+    }
+
+    private void writeSingle(LikeKey key, boolean liked) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> write(Map.of(key, liked)));
+            likedPostIndex.recordChange(key.userId(), key.postId(), liked);
+        } catch (Exception e) {
+            logger.warn("Dropping like change user={} post={} liked={}: {}",
+                    key.userId(), key.postId(), liked, e.getMessage());
+            // The bitmap may already show the dropped change
+            likedPostIndex.evictUser(key.userId());
+        }
+    }
+
+    /**
+     * Drain everything still queued before the datasource goes away
+     */
+    @PreDestroy
+    public void shutdown() {
+        while (!queue.isEmpty()) {
+            flush();
+        }
+    }
+
+    private record LikeKey(Long userId, Long postId) {
+    }
+
+    private record LikeEvent(LikeKey key, boolean liked, int delta) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.repository.LikeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Per-user compressed bitmap of liked post IDs, so like-status checks are in-memory bit tests
+ * Bitmaps are loaded on first use for a user and bounded by an estimated byte budget.
+ * They are copy-on-write: readers never see a bitmap that is being modified, and every
+ * change is re-inserted so the cache re-weighs it. Changes apply only after the like
+ * transaction commits.
+ * Only this instance's writes reach a loaded bitmap, so each one is reloaded from the database
+ * a fixed time after it was loaded, however often it is updated in between; likes made on other
+ * instances show up within that TTL. Write decisions never rely on the bitmap (see LikeService).
+ */
+@Component
+public class LikedPostIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LikedPostIndex.class);
+
+    /** Map entry, key and bitmap header overhead per cached user */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${like.bitmap.enabled:true}")
+    private boolean enabled;
+
+    @Value("${like.bitmap.max-weight-bytes:33554432}")
+    private long maxWeightBytes;
+
+    @Value("${like.bitmap.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    Ticker ticker = Ticker.systemTicker();
+
+    private Cache<Long, RoaringBitmap> bitmaps;
+
+    @PostConstruct
+    public void init() {
+        bitmaps = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long userId, RoaringBitmap bitmap) -> weigh(bitmap))
+                // Measured from the load; recordChange replacing the bitmap does not extend it
+                .expireAfter(new Expiry<Long, RoaringBitmap>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, RoaringBitmap bitmap, long currentTime) {
+                        return Duration.ofSeconds(ttlSeconds).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long userId, RoaringBitmap bitmap, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, RoaringBitmap bitmap, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bitmaps, "likedPostBitmaps");
+        logger.info("Liked-post bitmap index enabled: {} (max {} bytes, ttl {}s)", enabled, maxWeightBytes, ttlSeconds);
+    }
+
+    /**
+     * False when the index cannot answer (disabled, or an id beyond the 32-bit bitmap range)
+     */
+    public boolean canAnswer(Collection<Long> postIds) {
+        return enabled && postIds.stream().allMatch(LikedPostIndex::fits);
+    }
+
+    public boolean isLiked(Long userId, Long postId) {
+        return bitmapFor(userId).contains(postId.intValue());
+    }
+
+    public Set<Long> filterLiked(Long userId, Collection<Long> postIds) {
+        RoaringBitmap bitmap = bitmapFor(userId);
+        Set<Long> liked = new HashSet<>();
+        for (Long postId : postIds) {
+            if (bitmap.contains(postId.intValue())) {
+                liked.add(postId);
+            }
+        }
+        return liked;
+    }
+
+    /**
+     * Apply a like change after the surrounding transaction commits
+     * Users whose bitmap is not loaded are skipped; they will load fresh state on next use.
+     */
+    public void recordChange(Long userId, Long postId, boolean liked) {
+        if (!enabled || !fits(postId)) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> apply(userId, postId, liked));
+    }
+
+    public void evictUser(Long userId) {
+        bitmaps.invalidate(userId);
+    }
+
+    private void apply(Long userId, Long postId, boolean liked) {
+        bitmaps.asMap().computeIfPresent(userId, (id, current) -> {
+            RoaringBitmap updated = current.clone();
+            if (liked) {
+                updated.add(postId.intValue());
+            } else {
+                updated.remove(postId.intValue());
+            }
+            updated.runOptimize();
+            return updated;
+        });
+    }
+
+    private RoaringBitmap bitmapFor(Long userId) {
+        return bitmaps.get(userId, id -> {
+            RoaringBitmap bitmap = new RoaringBitmap();
+            for (Long postId : likeRepository.findPostIdsLikedByUser(id)) {
+                if (fits(postId)) {
+                    bitmap.add(postId.intValue());
+                }
+            }
+            bitmap.runOptimize();
+            return bitmap;
+        });
+    }
+
+    static int weigh(RoaringBitmap bitmap) {
+        return ENTRY_OVERHEAD_BYTES + (int) bitmap.getLongSizeInBytes();
+    }
+
+    private static boolean fits(Long postId) {
+        return postId != null && postId >= 0 && postId <= Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.CommentDTO;
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.dto.PostDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Assembles the post detail page (post, first comments, like count, viewer state) in one call
+ * The reads are independent and run concurrently through FanOut, so latency is the slowest
+ * part rather than the sum. The post itself is required; any other part that misses the deadline
+ * or fails is left out and listed under "missing".
+ */
+@Service
+public class PostDetailService {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private FanOut fanOut;
+
+    @Value("${post.detail.deadline-ms:800}")
+    private long deadlineMs;
+
+    /**
+     * @param viewerId resolved by the caller; the security context does not reach pool threads
+     * @return empty when the post does not exist
+     */
+    public Optional<Map<String, Object>> getPostDetail(Long postId, Long viewerId, int commentLimit) {
+        FanOut.Call call = fanOut.begin("postDetail", deadlineMs);
+        CompletableFuture<Optional<PostDTO>> post = call.submit(() -> postService.getPostDTOById(postId));
+        CompletableFuture<CursorPage<CommentDTO>> comments = call.submit(() -> commentService.getComments(postId, null, commentLimit));
+        CompletableFuture<Long> likeCount = call.submit(() -> likeService.getLikeCount(postId));
+        CompletableFuture<Boolean> likedByMe = viewerId != null
+                ? call.submit(() -> likeService.isLikedByUser(postId, viewerId))
+                : null;
+
+        Optional<PostDTO> postDTO = call.await(post, "post");
+        if (postDTO == null) {
+            throw new IllegalStateException("Post " + postId + " could not be loaded in time");
+        }
+        if (postDTO.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("post", postDTO.get());
+        response.put("author", postDTO.get().getUser());
+        CursorPage<CommentDTO> commentPage = call.await(comments, "comments");
+        if (commentPage != null) {
+            response.put("comments", commentPage.getItems());
+            response.put("commentsNextCursor", commentPage.getNextCursor());
+        }
+        putIfLoaded(response, "likeCount", call.await(likeCount, "likeCount"));
+        if (likedByMe != null) {
+            putIfLoaded(response, "likedByMe", call.await(likedByMe, "likedByMe"));
+        }
+        response.put("partial", !call.missing().isEmpty());
+        response.put("missing", call.missing());
+        return Optional.of(response);
+    }
+
+    private void putIfLoaded(Map<String, Object> response, String key, Object value) {
+        if (value != null) {
+            response.put(key, value);
+        }
+    }
+}
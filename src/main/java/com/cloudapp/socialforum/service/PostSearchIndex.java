@@ -0,0 +1,574 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostText;
+import com.cloudapp.socialforum.repository.PostRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over post content, ranked with BM25
+ * Each post gets a dense document number; every term keeps a posting list of
+ * (document, term frequency) in document order. A query merges its terms' postings, scoring
+ * each matching document once, and keeps the best offset + limit documents in a min-heap, so
+ * ranking never sorts or buffers the whole match set. Deleted posts are tombstoned; once they
+ * make up a quarter of the index they are swept out and the documents renumbered.
+ * Built from a streamed scan on startup; until then {@link #isReady()} is false and callers
+ * fall back to the database. Local writes apply after commit. Posts created on other instances
+ * are picked up by a periodic scan above the highest id seen; posts deleted elsewhere drop out
+ * at the next, less frequent, reconcile against the table's ids (until then the feed lookup
+ * skips them, but they still count towards the total).
+ */
+@Component
+public class PostSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+    /** Indexed terms tried per misspelled query term */
+    private static final int FUZZY_EXPANSIONS = 3;
+    private static final int RECONCILE_BATCH = 500;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "so", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with");
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.max-query-terms:16}")
+    private int maxQueryTerms;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> index = new HashMap<>();
+    /** Trigram index over the terms in {@code index}, for typo-tolerant queries */
+    private final TrigramIndex vocabulary = new TrigramIndex();
+    private final Map<Long, Integer> docsByPostId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] postIds = new long[1024];
+    private int[] lengths = new int[1024];
+    private int docCount;
+    private int liveDocs;
+    private int tombstones;
+    private int compactions;
+    private long totalLength;
+
+    /** Posts deleted while the startup scan runs; the scan may still return them */
+    private final Set<Long> removedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+    /** Highest post id returned by a database scan; refresh looks above it */
+    private volatile long highestScannedId;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("search.index.documents", this, PostSearchIndex::size)
+                .description("Posts in the in-memory search index")
+                .register(meterRegistry);
+        Gauge.builder("search.index.terms", this, PostSearchIndex::termCount)
+                .description("Distinct terms in the in-memory search index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Index every post from one read-only streamed scan
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            logger.info("Post search index disabled; searches use the database");
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setReadOnly(true);
+            template.executeWithoutResult(status -> {
+                try (Stream<PostText> rows = postRepository.streamPostTexts()) {
+                    rows.forEach(row -> {
+                        index(row.getId(), row.getContent());
+                        highestScannedId = Math.max(highestScannedId, row.getId());
+                    });
+                }
+            });
+            lock.writeLock().lock();
+            try {
+                removedDuringBuild.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Post search index built: {} posts, {} terms in {} ms",
+                    size(), termCount(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Could not build post search index, searches stay on the database: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Index posts created since the last scan, wherever they were created
+     */
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval-ms:30000}",
+               initialDelayString = "${search.index.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        try {
+            List<PostText> rows = postRepository.findPostTextsInRange(highestScannedId + 1, Long.MAX_VALUE);
+            for (PostText row : rows) {
+                index(row.getId(), row.getContent());
+                highestScannedId = Math.max(highestScannedId, row.getId());
+            }
+            if (!rows.isEmpty()) {
+                logger.debug("Search index picked up {} new posts", rows.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not refresh post search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Bring the index in line with the posts table: drop posts deleted elsewhere and index any
+     * the refresh missed (ids committed out of order)
+     * Documents indexed after the scan started are left alone; the scan may not see them.
+     */
+    @Scheduled(fixedDelayString = "${search.index.reconcile-interval-ms:900000}",
+               initialDelayString = "${search.index.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        try {
+            int scanStart;
+            int compactionsAtStart;
+            lock.readLock().lock();
+            try {
+                scanStart = docCount;
+                compactionsAtStart = compactions;
+            } finally {
+                lock.readLock().unlock();
+            }
+            long[][] scanned = {new long[1024]};
+            int[] scannedCount = {0};
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setReadOnly(true);
+            template.executeWithoutResult(status -> {
+                try (Stream<Long> ids = postRepository.streamPostIds()) {
+                    ids.forEach(id -> {
+                        if (scannedCount[0] == scanned[0].length) {
+                            scanned[0] = Arrays.copyOf(scanned[0], scannedCount[0] * 2);
+                        }
+                        scanned[0][scannedCount[0]++] = id;
+                    });
+                }
+            });
+
+            BitSet seen = new BitSet();
+            List<Long> missing = new ArrayList<>();
+            List<Long> stale = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                // Compaction renumbers documents; if one ran meanwhile, wait for the next round
+                if (compactions != compactionsAtStart) {
+                    return;
+                }
+                for (int i = 0; i < scannedCount[0]; i++) {
+                    Integer doc = docsByPostId.get(scanned[0][i]);
+                    if (doc != null) {
+                        seen.set(doc);
+                    } else {
+                        missing.add(scanned[0][i]);
+                    }
+                }
+                docsByPostId.forEach((postId, doc) -> {
+                    if (doc < scanStart && !seen.get(doc)) {
+                        stale.add(postId);
+                    }
+                });
+            } finally {
+                lock.readLock().unlock();
+            }
+            stale.forEach(this::unindex);
+            for (int from = 0; from < missing.size(); from += RECONCILE_BATCH) {
+                postRepository.findPostTextsByIds(missing.subList(from, Math.min(missing.size(), from + RECONCILE_BATCH)))
+                        .forEach(row -> index(row.getId(), row.getContent()));
+            }
+            if (!stale.isEmpty() || !missing.isEmpty()) {
+                logger.info("Search index reconciled: {} posts dropped, {} added", stale.size(), missing.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not reconcile post search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Index a post after the surrounding transaction commits
+     */
+    public void add(Long postId, String content) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> index(postId, content));
+    }
+
+    public void remove(Long postId) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> unindex(postId));
+    }
+
+    /**
+     * Rank posts for a free-text query; terms are OR-ed and scored with BM25
+     * @return the requested window of post ids, best first, plus the total number of matches
+     */
+    public SearchHits search(String query, long offset, int limit) {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        queryTerms(query).forEach(term -> weights.put(term, 1f));
+        return rank(weights, offset, limit);
+    }
+
+    /**
+     * Like {@link #search}, but each query term also matches indexed terms within a small edit
+     * distance (see TrigramIndex); a variant's BM25 contribution is scaled by 1 / (1 + distance)
+     */
+    public SearchHits searchFuzzy(String query, long offset, int limit) {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        for (String term : queryTerms(query)) {
+            for (TrigramIndex.Match match : vocabulary.lookup(term, FUZZY_EXPANSIONS)) {
+                weights.merge(match.value(), 1f / (1 + match.distance()), Math::max);
+            }
+        }
+        return rank(weights, offset, limit);
+    }
+
+    private SearchHits rank(Map<String, Float> weights, long offset, int limit) {
+        if (weights.isEmpty() || limit <= 0) {
+            return new SearchHits(List.of(), 0);
+        }
+        long k = offset + limit;
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(weights.size());
+            List<Float> listWeights = new ArrayList<>(weights.size());
+            weights.forEach((term, weight) -> {
+                Postings postings = index.get(term);
+                if (postings != null) {
+                    lists.add(postings);
+                    listWeights.add(weight);
+                }
+            });
+            if (lists.isEmpty() || liveDocs == 0) {
+                return new SearchHits(List.of(), 0);
+            }
+
+            float avgLength = (float) totalLength / liveDocs;
+            float[] idfs = new float[lists.size()];
+            for (int t = 0; t < lists.size(); t++) {
+                int df = lists.get(t).liveCount(deleted);
+                idfs[t] = listWeights.get(t) * (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+            }
+
+            // Postings are in document order, so merging them visits each matching document once
+            // with its full score; memory stays at one cursor per term plus the top-k heap
+            int[] cursors = new int[lists.size()];
+            // Min-heap of the best k; ties go to the newer post
+            PriorityQueue<ScoredDoc> heap = new PriorityQueue<>();
+            int matchCount = 0;
+            while (true) {
+                int doc = Integer.MAX_VALUE;
+                for (int t = 0; t < cursors.length; t++) {
+                    Postings postings = lists.get(t);
+                    if (cursors[t] < postings.size) {
+                        doc = Math.min(doc, postings.docs[cursors[t]]);
+                    }
+                }
+                if (doc == Integer.MAX_VALUE) {
+                    break;
+                }
+                float score = 0;
+                for (int t = 0; t < cursors.length; t++) {
+                    Postings postings = lists.get(t);
+                    int i = cursors[t];
+                    if (i < postings.size && postings.docs[i] == doc) {
+                        int tf = postings.freqs[i] & 0xFF;
+                        float norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+                        score += idfs[t] * (tf * (K1 + 1)) / (tf + norm);
+                        cursors[t]++;
+                    }
+                }
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                matchCount++;
+                if (heap.size() < k) {
+                    heap.offer(new ScoredDoc(doc, score));
+                } else if (heap.peek().compareTo(doc, score) < 0) {
+                    heap.poll();
+                    heap.offer(new ScoredDoc(doc, score));
+                }
+            }
+
+            Long[] ranked = new Long[heap.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = postIds[heap.poll().doc()];
+            }
+            List<Long> window = offset >= ranked.length
+                    ? List.of()
+                    : Arrays.asList(ranked).subList((int) offset, ranked.length);
+            return new SearchHits(window, matchCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased runs of letters and digits, minus stop words and one-character tokens
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start > 1 && i - start <= MAX_TOKEN_LENGTH) {
+                    String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                    if (!STOP_WORDS.contains(token)) {
+                        tokens.add(token);
+                    }
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private List<String> queryTerms(String query) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        return terms.size() > maxQueryTerms ? terms.subList(0, maxQueryTerms) : terms;
+    }
+
+    private void index(Long postId, String content) {
+        List<String> tokens = tokenize(content);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            if (docsByPostId.containsKey(postId) || removedDuringBuild.contains(postId)) {
+                return;
+            }
+            if (docCount == postIds.length) {
+                postIds = Arrays.copyOf(postIds, docCount * 2);
+                lengths = Arrays.copyOf(lengths, docCount * 2);
+            }
+            int doc = docCount++;
+            postIds[doc] = postId;
+            lengths[doc] = tokens.size();
+            docsByPostId.put(postId, doc);
+            liveDocs++;
+            totalLength += tokens.size();
+            frequencies.forEach((term, tf) -> index.computeIfAbsent(term, t -> {
+                vocabulary.add(t);
+                return new Postings();
+            }).add(doc, tf));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(Long postId) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                removedDuringBuild.add(postId);
+            }
+            Integer doc = docsByPostId.remove(postId);
+            if (doc == null) {
+                return;
+            }
+            deleted.set(doc);
+            liveDocs--;
+            totalLength -= lengths[doc];
+            tombstones++;
+            if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 >= liveDocs) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop tombstoned documents and renumber the live ones densely, shrinking the per-document
+     * arrays; renumbering keeps document order, so posting lists stay sorted
+     */
+    private void compact() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = live;
+                postIds[live] = postIds[doc];
+                lengths[live] = lengths[doc];
+                live++;
+            }
+        }
+        index.entrySet().removeIf(entry -> {
+            if (entry.getValue().compact(remap) > 0) {
+                return false;
+            }
+            vocabulary.remove(entry.getKey());
+            return true;
+        });
+        docsByPostId.replaceAll((postId, doc) -> remap[doc]);
+        int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, live)) * 2);
+        postIds = Arrays.copyOf(postIds, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        docCount = live;
+        deleted.clear();
+        tombstones = 0;
+        compactions++;
+        logger.debug("Search index compacted: {} live posts, {} terms", liveDocs, index.size());
+    }
+
+    /**
+     * One page of ranked post ids and the number of posts that matched at all
+     */
+    public record SearchHits(List<Long> postIds, int total) {
+    }
+
+    /**
+     * Candidate in the top-k heap; the head is the weakest, and on equal scores the older post
+     */
+    private record ScoredDoc(int doc, float score) implements Comparable<ScoredDoc> {
+        @Override
+        public int compareTo(ScoredDoc other) {
+            return compareTo(other.doc, other.score);
+        }
+
+        int compareTo(int otherDoc, float otherScore) {
+            return score != otherScore ? Float.compare(score, otherScore) : Integer.compare(doc, otherDoc);
+        }
+    }
+
+    /**
+     * Growable (document, frequency) list in ascending document order; frequencies saturate at 255
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private byte[] freqs = new byte[4];
+        private int size;
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = (byte) Math.min(tf, 255);
+            size++;
+        }
+
+        int liveCount(BitSet deleted) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (!deleted.get(docs[i])) {
+                    live++;
+                }
+            }
+            return live;
+        }
+
+        /**
+         * Drop documents mapped to -1 and renumber the rest; trims the arrays when mostly empty
+         */
+        int compact(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[kept] = doc;
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (kept > 0 && kept * 4 < docs.length) {
+                docs = Arrays.copyOf(docs, kept * 2);
+                freqs = Arrays.copyOf(freqs, kept * 2);
+            }
+            return kept;
+        }
+    }
+}
@@ -1,21 +1,41 @@
 package com.cloudapp.socialforum.service;
 
+import com.cloudapp.socialforum.dto.AdminPostFilter;
+import com.cloudapp.socialforum.dto.CommentDTO;
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.dto.PageCursor;
 import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.dto.SharePostResponse;
 import com.cloudapp.socialforum.model.Post;
 import com.cloudapp.socialforum.model.User;
 import com.cloudapp.socialforum.repository.PostRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional(readOnly = true)
@@ -32,12 +52,38 @@ public class PostService {
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private FeedPageCache feedPageCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private ShareCounterBuffer shareCounterBuffer;
+
+    @Autowired
+    private SharedPostCache sharedPostCache;
+
+    @Autowired
+    private PostSearchIndex postSearchIndex;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
     @Transactional
     public Post createPost(String content, String imageUrl, Long userId) {
         logger.info("Creating post for user ID: {}", userId);
         
-        User user = userService.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        User user = userService.getReference(userId);
 
         Post post = new Post();
         post.setContent(content);
@@ -47,7 +93,12 @@ public class PostService {
         post.setShareCount(0);
         post.setMediaType(imageUrl != null && !imageUrl.isEmpty() ? "image" : "text");
 
-        Post savedPost = postRepository.save(post);
+        Post savedPost = saveNewPost(post, userId);
+        feedPageCache.invalidateForNewPost();
+        trendingService.recordNewPost(savedPost.getId());
+        postSearchIndex.add(savedPost.getId(), savedPost.getContent());
+        tagService.recordPostTags(savedPost.getId(), savedPost.getContent(), savedPost.getCreatedAt());
+        searchResultCache.invalidateForPost(savedPost.getContent());
         logger.info("Post created successfully with ID: {} and share token: {}", 
             savedPost.getId(), savedPost.getShareToken());
         
@@ -58,8 +109,10 @@ public class PostService {
     public Post createPost(String content, String imageUrl, String videoUrl, String mediaType, Long userId) {
         logger.info("Creating post for user ID: {} with media type: {}", userId, mediaType);
         
-        User user = userService.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        User user = userService.getReference(userId);
 
         Post post = new Post();
         post.setContent(content);
@@ -70,13 +123,29 @@ public class PostService {
         post.setShareToken(UUID.randomUUID().toString());
         post.setShareCount(0);
 
-        Post savedPost = postRepository.save(post);
+        Post savedPost = saveNewPost(post, userId);
+        feedPageCache.invalidateForNewPost();
+        trendingService.recordNewPost(savedPost.getId());
+        postSearchIndex.add(savedPost.getId(), savedPost.getContent());
+        tagService.recordPostTags(savedPost.getId(), savedPost.getContent(), savedPost.getCreatedAt());
+        searchResultCache.invalidateForPost(savedPost.getContent());
         logger.info("Post created successfully with ID: {} and share token: {}", 
             savedPost.getId(), savedPost.getShareToken());
         
         return savedPost;
     }
 
+    /**
+     * Insert with the author as a lazy reference; the FK check replaces the user pre-load
+     */
+    private Post saveNewPost(Post post, Long userId) {
+        try {
+            return postRepository.save(post);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("User not found with ID: " + userId);
+        }
+    }
+
     public List<Post> getAllPosts() {
         try {
             List<Post> posts = postRepository.findAllByOrderByCreatedAtDesc();
@@ -100,48 +169,43 @@ public class PostService {
         }
     }
 
-    public List<PostDTO> getAllPostsDTO() {
-        try {
-            List<Post> posts = postRepository.findAllByOrderByCreatedAtDesc();
-            if (posts == null) {
-                return java.util.Collections.emptyList();
+    /**
+     * Stream the admin post listing as JSON straight to the response
+     * Rows come from a cursor-backed Stream of DTO projections, so no entities pile up in the
+     * persistence context and memory stays constant regardless of table size.
+     * Writes {"posts": [...], "nextCursor": ...}; nextCursor is set only when limit cut the listing short.
+     */
+    public void writeAdminPosts(AdminPostFilter filter, String after, int limit, OutputStream out) throws IOException {
+        PageCursor cursor = PageCursor.decode(after);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<PostDTO> rows = postRepository.streamForAdmin(
+                    filter.getUserId(), filter.getMediaType(), filter.getFrom(), filter.getTo(),
+                    cursor != null ? cursor.getCreatedAt() : null, cursor != null ? cursor.getId() : null);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+
+            // A failure mid-stream must leave the JSON unterminated, not closed to look complete
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("posts");
+
+            Iterator<PostDTO> iterator = rows.iterator();
+            PostDTO last = null;
+            int written = 0;
+            while (iterator.hasNext() && (limit <= 0 || written < limit)) {
+                last = withPresignedUrls(iterator.next());
+                writer.writeValue(generator, last);
+                if (++written % 100 == 0) {
+                    generator.flush();
+                }
             }
-            return posts.stream()
-                    .map(post -> {
-                        try {
-                            PostDTO dto = PostDTO.fromPostWithPresignedUrls(post, s3Service);
-                            // Handle orphaned posts (null user) - Modify DTO only, not Entity
-                            if (dto.getUser() == null) {
-                                User dummyUser = new User();
-                                dummyUser.setId(-1L);
-                                dummyUser.setUsername("Unknown User");
-                                dummyUser.setRole("USER");
-                                dto.setUser(dummyUser);
-                            }
-                            return dto;
-                        } catch (Exception e) {
-                            logger.error("Error converting post {} to DTO: {}", post.getId(), e.getMessage());
-                            // Fallback: Return DTO without presigned URLs if S3 fails
-                            try {
-                                PostDTO dto = PostDTO.fromPost(post);
-                                if (dto.getUser() == null) {
-                                    User dummyUser = new User();
-                                    dummyUser.setId(-1L);
-                                    dummyUser.setUsername("Unknown User");
-                                    dummyUser.setRole("USER");
-                                    dto.setUser(dummyUser);
-                                }
-                                return dto;
-                            } catch (Exception ex) {
-                                return null;
-                            }
-                        }
-                    })
-                    .filter(dto -> dto != null)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error("Error fetching all posts DTO: {}", e.getMessage());
-            return java.util.Collections.emptyList();
+            generator.writeEndArray();
+
+            String nextCursor = last != null && limit > 0 && iterator.hasNext()
+                    ? new PageCursor(last.getCreatedAt(), last.getId()).encode()
+                    : null;
+            generator.writeStringField("nextCursor", nextCursor);
+            generator.writeEndObject();
         }
     }
 
@@ -151,63 +215,93 @@ public class PostService {
         return postRepository.findAllByOrderByCreatedAtDesc(pageable);
     }
 
+    /**
+     * Total post count, cached alongside the feed pages it belongs to
+     */
+    public long countPosts() {
+        return feedPageCache.getTotal(postRepository::count);
+    }
+
     public Page<PostDTO> getAllPostsPaginatedDTO(Pageable pageable) {
-        Page<Post> postsPage = postRepository.findAllByOrderByCreatedAtDesc(pageable);
-        return postsPage.map(post -> {
-            try {
-                // Force initialization of User to catch EntityNotFoundException if user is missing in DB
-                if (post.getUser() != null) {
-                    post.getUser().getUsername();
-                }
-                
-                PostDTO dto = PostDTO.fromPostWithPresignedUrls(post, s3Service);
-                if (dto.getUser() == null) {
-                    User dummyUser = new User();
-                    dummyUser.setId(-1L);
-                    dummyUser.setUsername("Unknown User");
-                    dummyUser.setRole("USER");
-                    dto.setUser(dummyUser);
-                }
-                return dto;
-            } catch (Exception e) {
-                logger.error("Error converting post {} to DTO: {}", post.getId(), e.getMessage());
-                // If User is missing (EntityNotFoundException), create a dummy user DTO
-                try {
-                    PostDTO dto = new PostDTO();
-                    dto.setId(post.getId());
-                    dto.setContent(post.getContent());
-                    dto.setImageUrl(post.getImageUrl());
-                    dto.setVideoUrl(post.getVideoUrl());
-                    dto.setMediaType(post.getMediaType());
-                    dto.setShareToken(post.getShareToken());
-                    dto.setShareCount(post.getShareCount());
-                    dto.setCreatedAt(post.getCreatedAt());
-                    
-                    // Set dummy user
-                    User dummyUser = new User();
-                    dummyUser.setId(-1L);
-                    dummyUser.setUsername("Unknown User");
-                    dummyUser.setRole("USER");
-                    dto.setUser(dummyUser);
-                    
-                    // Safe counts
-                    dto.setCommentsCount(0);
-                    dto.setLikesCount(0);
-                    
-                    // Try to get presigned URLs
-                    if (dto.getImageUrl() != null && !dto.getImageUrl().isEmpty()) {
-                        dto.setImageUrl(s3Service.generatePresignedDownloadUrl(dto.getImageUrl()));
-                    }
-                    if (dto.getVideoUrl() != null && !dto.getVideoUrl().isEmpty()) {
-                        dto.setVideoUrl(s3Service.generatePresignedDownloadUrl(dto.getVideoUrl()));
-                    }
-                    
-                    return dto;
-                } catch (Exception ex) {
-                    return null;
+        return feedPageCache.getOffsetPage(pageable.getPageNumber(), pageable.getPageSize(),
+                () -> postRepository.findFeedPage(pageable).map(this::withPresignedUrls));
+    }
+
+    /**
+     * Keyset (cursor) pagination over (createdAt, id)
+     * Skips the COUNT query and seeks by index, so page N costs the same as page 1
+     */
+    public CursorPage<PostDTO> getPostsAfterCursorDTO(String after, int size) {
+        return feedPageCache.getCursorPage(after, size, () -> loadCursorPage(after, size));
+    }
+
+    private CursorPage<PostDTO> loadCursorPage(String after, int size) {
+        PageCursor cursor = PageCursor.decode(after);
+        Pageable limit = PageRequest.of(0, size);
+        Slice<PostDTO> slice = cursor == null
+                ? postRepository.findFeedFirstPage(limit)
+                : postRepository.findFeedPageAfter(cursor.getCreatedAt(), cursor.getId(), limit);
+
+        List<PostDTO> posts = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext() && !posts.isEmpty()) {
+            PostDTO last = posts.get(posts.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        posts.forEach(this::withPresignedUrls);
+        return new CursorPage<>(posts, nextCursor, nextCursor != null);
+    }
+
+    /**
+     * Strong ETag for a feed response, derived from the page actually returned
+     * Creates, deletes, likes, comments and shares all change either the id list or a
+     * post's revision or counters, so a cached page and its ETag can never disagree.
+     */
+    public String getFeedETag(List<PostDTO> posts, Long total, boolean hasMore, int commentPreview) {
+        StringBuilder raw = new StringBuilder()
+                .append("total=").append(total)
+                .append(":more=").append(hasMore)
+                .append(":preview=").append(commentPreview);
+        for (PostDTO post : posts) {
+            raw.append('|').append(post.getId()).append('.').append(post.getRevision())
+                    .append('.').append(post.getLikesCount()).append('.').append(post.getCommentsCount())
+                    .append('.').append(post.getShareCount()).append('.').append(post.getLikedByMe());
+            if (post.getCommentPreview() != null) {
+                for (CommentDTO comment : post.getCommentPreview()) {
+                    raw.append(',').append(comment.getId()).append('.').append(comment.getReplyCount());
                 }
             }
-        });
+        }
+        return "\"feed-" + DigestUtils.md5DigestAsHex(raw.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    public Optional<String> getPostETag(Long postId) {
+        return postRepository.findRevisionById(postId)
+                .map(revision -> "\"post-" + postId + "-" + revision + "\"");
+    }
+
+    /**
+     * ETag for one page of a post's comments; comment writes bump the post revision through the
+     * comment counter, and the cursor and limit tell pages of the same revision apart
+     */
+    public Optional<String> getCommentsETag(Long postId, String after, int limit) {
+        String page = limit + (after != null
+                ? "-" + DigestUtils.md5DigestAsHex(after.getBytes(StandardCharsets.UTF_8)) : "");
+        return postRepository.findRevisionById(postId)
+                .map(revision -> "\"comments-" + postId + "-" + revision + "-" + page + "\"");
+    }
+
+    /**
+     * Swap S3 keys for pre-signed URLs; on S3 failure the DTO keeps its raw keys
+     */
+    private PostDTO withPresignedUrls(PostDTO dto) {
+        try {
+            return dto.withPresignedUrls(s3Service);
+        } catch (Exception e) {
+            logger.error("Error generating media URLs for post {}: {}", dto.getId(), e.getMessage());
+            return dto;
+        }
     }
 
     public Optional<Post> getPostById(Long id) {
@@ -215,32 +309,48 @@ public class PostService {
     }
 
     public Optional<PostDTO> getPostDTOById(Long id) {
-        return postRepository.findById(id)
-                .map(post -> {
-                    try {
-                        PostDTO dto = PostDTO.fromPostWithPresignedUrls(post, s3Service);
-                        if (dto.getUser() == null) {
-                            User dummyUser = new User();
-                            dummyUser.setId(-1L);
-                            dummyUser.setUsername("Unknown User");
-                            dummyUser.setRole("USER");
-                            dto.setUser(dummyUser);
-                        }
-                        return dto;
-                    } catch (Exception e) {
-                        logger.error("Error converting post {} to DTO: {}", post.getId(), e.getMessage());
-                        return null;
-                    }
-                });
+        return postRepository.findPostDTOById(id).map(this::withPresignedUrls);
+    }
+
+    /**
+     * Trending posts, best first; ids come from the in-memory ranking, rows from one IN query
+     */
+    public List<PostDTO> getTrendingPostsDTO(int limit) {
+        return getPostsDTOByIds(trendingService.getTopPostIds(limit));
+    }
+
+    /**
+     * Posts for a ranked id list, in the same order; ids whose post is gone are skipped
+     */
+    public List<PostDTO> getPostsDTOByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, PostDTO> byId = postRepository.findPostDTOsByIds(ids).stream()
+                .collect(Collectors.toMap(PostDTO::getId, dto -> dto));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::withPresignedUrls)
+                .collect(Collectors.toList());
     }
 
-    public Optional<Post> getPostByShareToken(String shareToken) {
-        logger.info("Fetching post by share token: {}", shareToken);
-        return postRepository.findByShareToken(shareToken);
+    /**
+     * Shared-link lookup through SharedPostCache; unknown tokens are negatively cached
+     */
+    public Optional<PostDTO> getSharedPostDTO(String shareToken) {
+        return sharedPostCache.get(shareToken, token -> {
+            logger.debug("Share token cache miss: {}", token);
+            return postRepository.findPostDTOByShareToken(token).map(this::withPresignedUrls);
+        });
     }
 
+    /**
+     * Generate the share link and count the share, loading the post once
+     * The count goes through ShareCounterBuffer; the returned shareCount includes unflushed shares.
+     */
     @Transactional
-    public String generateShareLink(Long postId, String baseUrl) {
+    public SharePostResponse sharePost(Long postId, String baseUrl) {
         logger.info("Generating share link for post ID: {}", postId);
         
         Post post = postRepository.findById(postId)
@@ -248,24 +358,28 @@ public class PostService {
         
         if (post.getShareToken() == null) {
             post.setShareToken(UUID.randomUUID().toString());
+            post.setRevision(post.getRevision() + 1);
             postRepository.save(post);
+            sharedPostCache.tokenAssigned(post.getShareToken());
         }
         
         String shareUrl = baseUrl + "/api/posts/shared/" + post.getShareToken();
+        shareCounterBuffer.increment(postId);
+        trendingService.recordShare(postId);
+        long shareCount = post.getShareCount() + shareCounterBuffer.getPending(postId);
+        sharedPostCache.patchShareCount(post.getShareToken(), (int) shareCount);
         logger.info("Share link generated: {}", shareUrl);
         
-        return shareUrl;
+        return new SharePostResponse(post.getId(), post.getShareToken(), shareUrl,
+                (int) shareCount, "Share link generated successfully");
     }
 
-    @Transactional
-    public Post incrementShareCount(Long postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
-        
-        post.setShareCount(post.getShareCount() + 1);
-        logger.info("Share count incremented for post ID: {} to {}", postId, post.getShareCount());
-        
-        return postRepository.save(post);
+    /**
+     * Newest posts with a hashtag, one page at a time, from post_tags
+     */
+    public Slice<PostDTO> getPostsDTOByTag(String tag, int page, int size) {
+        return postRepository.findPostDTOsByTag(TagService.normalizeTag(tag), PageRequest.of(page, size))
+                .map(this::withPresignedUrls);
     }
 
     public List<Post> getPostsByUserId(Long userId) {
@@ -273,29 +387,8 @@ public class PostService {
     }
 
     public List<PostDTO> getPostsDTOByUserId(Long userId) {
-        List<Post> posts = postRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return posts.stream()
-                .map(post -> {
-                    try {
-                        // Force initialization of User
-                        if (post.getUser() != null) {
-                            post.getUser().getUsername();
-                        }
-                        
-                        PostDTO dto = PostDTO.fromPostWithPresignedUrls(post, s3Service);
-                        if (dto.getUser() == null) {
-                             User dummyUser = new User();
-                             dummyUser.setId(userId);
-                             dummyUser.setUsername("Unknown User"); 
-                             dto.setUser(dummyUser);
-                        }
-                        return dto;
-                    } catch (Exception e) {
-                        logger.error("Error converting post {} to DTO: {}", post.getId(), e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(java.util.Objects::nonNull)
+        return postRepository.findPostDTOsByUserId(userId).stream()
+                .map(this::withPresignedUrls)
                 .collect(Collectors.toList());
     }
 
@@ -307,6 +400,7 @@ public class PostService {
         Optional<Post> postOpt = postRepository.findById(id);
         if (postOpt.isPresent()) {
             Post post = postOpt.get();
+            searchResultCache.invalidateForPost(post.getContent());
             
             // Delete image from S3 if exists
             if (post.getImageUrl() != null && !post.getImageUrl().isEmpty()) {
@@ -335,10 +429,31 @@ public class PostService {
             }
         }
         
+        tagService.removePostTags(id);
         postRepository.deleteById(id);
+        feedPageCache.invalidateForDeletedPost(id);
+        trendingService.removePost(id);
+        postSearchIndex.remove(id);
+        sharedPostCache.invalidatePost(id);
         logger.info("Post and associated media deleted successfully (RDS + S3)");
     }
     
+    /**
+     * Recompute like/comment counters for one id range in its own transaction
+     * Called batch by batch from the admin maintenance endpoint
+     */
+    @Transactional
+    public int rebuildCounters(Long fromId, Long toId) {
+        int updated = postRepository.rebuildCounters(fromId, toId);
+        feedPageCache.invalidateAll();
+        return updated;
+    }
+
+    public Long getMaxPostId() {
+        Long maxId = postRepository.findMaxId();
+        return maxId != null ? maxId : 0L;
+    }
+    
     /**
      * Extract S3 key from URL for deletion
      */
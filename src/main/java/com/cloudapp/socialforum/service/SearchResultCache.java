@@ -0,0 +1,191 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.dto.SearchResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Complete search responses keyed by (normalized query, type, page, size)
+ * Every entry is registered under the terms of its query (hashtags as "#tag" for tag searches).
+ * Writing or deleting a post invalidates only the entries whose terms occur in that post, so
+ * unrelated popular queries stay cached. Changes the terms cannot see (new users, counter updates)
+ * are bounded by the TTL. Entries are weighed by estimated size against a byte budget.
+ */
+@Component
+public class SearchResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultCache.class);
+
+    /** Response object, lists and scalar fields */
+    private static final int RESPONSE_OVERHEAD_BYTES = 256;
+    private static final int POST_OVERHEAD_BYTES = 320;
+    private static final int USER_BYTES = 256;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.cache.max-weight-bytes:16777216}")
+    private long maxWeightBytes;
+
+    @Value("${search.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<Key, Entry> responses;
+    private final Map<String, Set<Key>> keysByTerm = new ConcurrentHashMap<>();
+    private Counter savedTime;
+    private Counter invalidations;
+    private final AtomicLong writes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Key key, Entry entry) -> entry.weight())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .executor(Runnable::run)
+                .removalListener((Key key, Entry entry, RemovalCause cause) -> {
+                    if (key != null && cause != RemovalCause.REPLACED) {
+                        unregister(key);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "searchResults");
+        savedTime = Counter.builder("search.cache.saved.seconds")
+                .description("Search time avoided by answering from the result cache")
+                .register(meterRegistry);
+        invalidations = Counter.builder("search.cache.invalidations")
+                .description("Cached search responses dropped because a post write matched their terms")
+                .register(meterRegistry);
+        logger.info("Search result cache enabled: {} (max {} bytes, ttl {}s)", enabled, maxWeightBytes, ttlSeconds);
+    }
+
+    /**
+     * Cached response for the request, or the loaded one; partial responses are never cached
+     */
+    public SearchResponse get(String query, String type, int page, int size, Supplier<SearchResponse> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(normalize(query), type, page, size);
+        Entry cached = responses.getIfPresent(key);
+        if (cached != null) {
+            savedTime.increment(cached.loadNanos() / 1e9);
+            return cached.response();
+        }
+        long generation = writes.get();
+        long started = System.nanoTime();
+        SearchResponse loaded = loader.get();
+        // A post write that committed during the load may not be reflected in it
+        if (!loaded.isPartial() && writes.get() == generation) {
+            register(key);
+            responses.put(key, new Entry(loaded, System.nanoTime() - started, weigh(loaded)));
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop responses whose query terms occur in a post that was written or deleted
+     * Runs after the surrounding transaction commits.
+     */
+    public void invalidateForPost(String content) {
+        if (!enabled || content == null) {
+            return;
+        }
+        Set<String> terms = new HashSet<>(PostSearchIndex.tokenize(content));
+        TagService.extractTags(content).forEach(tag -> terms.add("#" + tag));
+        TransactionCallbacks.afterCommit(() -> {
+            writes.incrementAndGet();
+            int dropped = 0;
+            for (String term : terms) {
+                Set<Key> keys = keysByTerm.get(term);
+                if (keys != null) {
+                    for (Key key : Set.copyOf(keys)) {
+                        responses.invalidate(key);
+                        dropped++;
+                    }
+                }
+            }
+            if (dropped > 0) {
+                invalidations.increment(dropped);
+                logger.debug("Search cache: dropped {} responses for a post write", dropped);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        responses.invalidateAll();
+    }
+
+    static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Rough retained size: fixed overhead per object plus two bytes per content character
+     */
+    static int weigh(SearchResponse response) {
+        long bytes = RESPONSE_OVERHEAD_BYTES + (long) response.getUsers().size() * USER_BYTES;
+        for (PostDTO post : response.getPosts()) {
+            bytes += POST_OVERHEAD_BYTES + (post.getContent() != null ? post.getContent().length() * 2L : 0);
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private Set<String> terms(Key key) {
+        if ("people".equals(key.type())) {
+            return Set.of();
+        }
+        if ("tags".equals(key.type())) {
+            return Set.of("#" + TagService.normalizeTag(key.query()));
+        }
+        return new HashSet<>(PostSearchIndex.tokenize(key.query()));
+    }
+
+    private void register(Key key) {
+        for (String term : terms(key)) {
+            keysByTerm.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void unregister(Key key) {
+        if (responses.asMap().containsKey(key)) {
+            return;
+        }
+        for (String term : terms(key)) {
+            keysByTerm.computeIfPresent(term, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private record Key(String query, String type, int page, int size) {
+    }
+
+    private record Entry(SearchResponse response, long loadNanos, int weight) {
+    }
+}
@@ -1,103 +1,191 @@
 package com.cloudapp.socialforum.service;
 
-import com.cloudapp.socialforum.model.Post;
-import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.dto.SearchResponse;
+import com.cloudapp.socialforum.dto.UserSearchResult;
 import com.cloudapp.socialforum.repository.PostRepository;
 import com.cloudapp.socialforum.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Post, tag, people and fuzzy search
+ * For types "all" and "fuzzy" the post and user sources run concurrently through FanOut under one
+ * deadline, each capped to its own page size. A source that fails or misses the deadline is
+ * left out and the response is marked partial; only when every source is missing does the
+ * search fail. Each source's latency is recorded in search.source.latency.
+ * Complete responses are served from SearchResultCache.
+ */
 @Service
 public class SearchService {
 
+    private static final String POSTS = "posts";
+    private static final String USERS = "users";
+
     @Autowired
     private PostRepository postRepository;
 
     @Autowired
     private UserRepository userRepository;
 
-    public Map<String, Object> search(String query, String type) {
-        Map<String, Object> response = new HashMap<>();
-        
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostSearchIndex postSearchIndex;
+
+    @Autowired
+    private FanOut fanOut;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private UsernamePrefixIndex usernamePrefixIndex;
+
+    @Value("${search.deadline-ms:500}")
+    private long deadlineMs;
+
+    @Value("${search.users.max-results:10}")
+    private int maxUserResults;
+
+    /**
+     * @param page zero-based page of post results ("all", "tags", "fuzzy") or user results ("people")
+     */
+    public SearchResponse search(String query, String type, int page, int size) {
+        String normalizedType = type == null ? "all" : type.toLowerCase();
         if (query == null || query.trim().isEmpty()) {
-            response.put("users", Collections.emptyList());
-            response.put("posts", Collections.emptyList());
-            response.put("count", 0);
-            return response;
+            return emptyResponse(query, normalizedType, page, size);
         }
+        return searchResultCache.get(query, normalizedType, page, size,
+                () -> load(query.trim(), normalizedType, page, size));
+    }
 
-        try {
-            switch (type.toLowerCase()) {
-                case "people":
-                    List<User> users = userRepository.searchUsers(query);
-                    List<Map<String, Object>> userResults = mapUsers(users);
-                    response.put("users", userResults);
-                    response.put("posts", Collections.emptyList());
-                    response.put("count", userResults.size());
-                    break;
-                    
-                case "tags":
-                    List<Post> tagPosts = postRepository.searchByTag(query);
-                    List<Post> validTagPosts = filterValidPosts(tagPosts);
-                    response.put("posts", validTagPosts);
-                    response.put("users", Collections.emptyList());
-                    response.put("count", validTagPosts.size());
-                    break;
-                    
-                case "all":
-                default:
-                    List<Post> posts = postRepository.searchByContent(query);
-                    List<User> allUsers = userRepository.searchUsers(query);
-                    
-                    List<Post> validPosts = filterValidPosts(posts);
-                    List<Map<String, Object>> allUserResults = mapUsers(allUsers);
-                    
-                    response.put("posts", validPosts);
-                    response.put("users", allUserResults);
-                    response.put("count", validPosts.size() + allUserResults.size());
-                    break;
+    private SearchResponse emptyResponse(String query, String type, int page, int size) {
+        SearchResponse response = new SearchResponse();
+        response.setQuery(query);
+        response.setType(type);
+        response.setPage(page);
+        response.setSize(size);
+        return response;
+    }
+
+    private SearchResponse load(String trimmed, String normalizedType, int page, int size) {
+        SearchResponse response = emptyResponse(trimmed, normalizedType, page, size);
+        switch (normalizedType) {
+            case "people" -> {
+                Slice<UserSearchResult> users = timed(USERS, () -> searchUsers(trimmed, page, size));
+                response.setUsers(users.getContent());
+                response.setHasMore(users.hasNext());
+            }
+            case "tags" -> {
+                Slice<PostDTO> posts = timed(POSTS, () -> postService.getPostsDTOByTag(trimmed, page, size));
+                response.setPosts(posts.getContent());
+                response.setHasMore(posts.hasNext());
             }
-        } catch (Exception e) {
-            // Log error but return empty results
-            System.err.println("Search error: " + e.getMessage());
-            response.put("users", Collections.emptyList());
-            response.put("posts", Collections.emptyList());
-            response.put("count", 0);
+            case "fuzzy" -> searchConcurrently(response,
+                    () -> searchPostsFuzzy(trimmed, page, size),
+                    () -> searchUsersFuzzy(trimmed, Math.min(size, maxUserResults)));
+            default -> searchConcurrently(response,
+                    () -> searchPosts(trimmed, page, size),
+                    () -> searchUsers(trimmed, 0, Math.min(size, maxUserResults)).getContent());
         }
-        
+        response.setCount(response.getPosts().size() + response.getUsers().size());
         return response;
     }
 
-    private List<Post> filterValidPosts(List<Post> posts) {
-        if (posts == null) return Collections.emptyList();
-        return posts.stream()
-                .filter(post -> post != null && post.getUser() != null)
-                .collect(Collectors.toList());
+    private void searchConcurrently(SearchResponse response, Supplier<PostPage> postSource,
+                                    Supplier<List<UserSearchResult>> userSource) {
+        FanOut.Call call = fanOut.begin("search", deadlineMs);
+        CompletableFuture<PostPage> posts = call.submit(() -> timed(POSTS, postSource));
+        CompletableFuture<List<UserSearchResult>> users = call.submit(() -> timed(USERS, userSource));
+
+        PostPage postPage = call.await(posts, POSTS);
+        List<UserSearchResult> userPage = call.await(users, USERS);
+        response.getMissing().addAll(call.missing());
+        if (postPage == null && userPage == null) {
+            throw new IllegalStateException("Search sources unavailable: " + response.getMissing());
+        }
+        if (postPage != null) {
+            response.setPosts(postPage.posts());
+            response.setHasMore(postPage.hasMore());
+            response.setTotalPosts(postPage.total());
+        }
+        if (userPage != null) {
+            response.setUsers(userPage);
+        }
+        response.setPartial(!response.getMissing().isEmpty());
+    }
+
+    /**
+     * One page of posts for a free-text query, BM25-ranked from PostSearchIndex
+     * Falls back to the newest LIKE matches while the index is still being built.
+     */
+    private PostPage searchPosts(String query, int page, int size) {
+        if (postSearchIndex.isReady()) {
+            PostSearchIndex.SearchHits hits = postSearchIndex.search(query, (long) page * size, size);
+            return new PostPage(postService.getPostsDTOByIds(hits.postIds()),
+                    (long) (page + 1) * size < hits.total(), hits.total());
+        }
+        Slice<PostDTO> slice = postRepository.searchPostDTOsByContent(query, PageRequest.of(page, size));
+        return new PostPage(slice.getContent(), slice.hasNext(), null);
+    }
+
+    /**
+     * Typo-tolerant post search; needs the in-memory index, so it fails (and the source is
+     * reported missing) while the index is still being built
+     */
+    private PostPage searchPostsFuzzy(String query, int page, int size) {
+        if (!postSearchIndex.isReady()) {
+            throw new IllegalStateException("Post search index is not built yet");
+        }
+        PostSearchIndex.SearchHits hits = postSearchIndex.searchFuzzy(query, (long) page * size, size);
+        return new PostPage(postService.getPostsDTOByIds(hits.postIds()),
+                (long) (page + 1) * size < hits.total(), hits.total());
+    }
+
+    private List<UserSearchResult> searchUsersFuzzy(String query, int limit) {
+        return usernamePrefixIndex.fuzzy(query, limit).stream()
+                .map(user -> new UserSearchResult(user.getId(), user.getUsername(), user.getAvatarUrl(),
+                        null, null, user.getRole()))
+                .toList();
     }
 
-    private List<Map<String, Object>> mapUsers(List<User> users) {
-        if (users == null) return Collections.emptyList();
-        return users.stream()
-                .filter(user -> user != null)
-                .map(this::mapUserToResult)
-                .collect(Collectors.toList());
+    private Slice<UserSearchResult> searchUsers(String query, int page, int size) {
+        return userRepository.searchUsers(query, PageRequest.of(page, size));
+    }
+
+    private <T> T timed(String source, Supplier<T> task) {
+        long started = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = task.get();
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("search.source.latency")
+                    .description("Latency of one search source")
+                    .tag("source", source)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
     }
 
-    private Map<String, Object> mapUserToResult(User user) {
-        Map<String, Object> userMap = new HashMap<>();
-        userMap.put("id", user.getId());
-        userMap.put("username", user.getUsername());
-        userMap.put("email", user.getEmail());
-        userMap.put("avatarUrl", user.getAvatarUrl());
-        userMap.put("bio", user.getBio());
-        userMap.put("createdAt", user.getCreatedAt());
-        userMap.put("role", user.getRole());
-        return userMap;
+    private record PostPage(List<PostDTO> posts, boolean hasMore, Integer total) {
     }
 }
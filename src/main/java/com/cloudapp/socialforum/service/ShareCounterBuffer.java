@@ -0,0 +1,97 @@
+package com.cloudapp.socialforum.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for post share counts
+ * Shares land in a striped LongAdder per post and are applied with one batched
+ * UPDATE ... SET share_count = share_count + ? per flush, so concurrent shares never
+ * overwrite each other and hot posts cost one row update per interval.
+ */
+@Component
+public class ShareCounterBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShareCounterBuffer.class);
+
+    static final String FLUSH_SQL =
+            "UPDATE posts SET share_count = share_count + ?, revision = revision + 1 WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void increment(Long postId) {
+        add(postId, 1);
+    }
+
+    /**
+     * Shares recorded for a post that have not been flushed yet
+     */
+    public long getPending(Long postId) {
+        LongAdder adder = pending.get(postId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    private void add(Long postId, long delta) {
+        LongAdder adder = pending.computeIfAbsent(postId, id -> new LongAdder());
+        adder.add(delta);
+        // A flush may have detached this adder between lookup and add; move the late count over
+        if (pending.get(postId) != adder) {
+            long late = adder.sumThenReset();
+            if (late != 0) {
+                add(postId, late);
+            }
+        }
+    }
+
+    /**
+     * Apply all buffered deltas in one JDBC batch; failed deltas go back into the buffer
+     */
+    @Scheduled(fixedDelayString = "${share.flush-interval-ms:250}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Long postId : pending.keySet()) {
+            LongAdder adder = pending.remove(postId);
+            if (adder == null) {
+                continue;
+            }
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                batch.add(new Object[]{delta, postId});
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            logger.debug("Flushed share counts for {} posts", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            logger.error("Failed to flush share counts, keeping {} deltas buffered: {}", batch.size(), e.getMessage());
+            batch.forEach(row -> add((Long) row[1], (Long) row[0]));
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,125 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Share token to post summary cache for the public shared-link endpoint
+ * Known tokens are cached as assembled DTOs; unknown tokens are remembered for a shorter
+ * time so scanners probing random tokens stop at the cache too.
+ * Updates apply after the writing transaction commits and replace the cached DTO with a copy.
+ */
+@Component
+public class SharedPostCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedPostCache.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${share.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${share.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${share.cache.negative-max-size:50000}")
+    private long negativeMaxSize;
+
+    @Value("${share.cache.negative-ttl-seconds:10}")
+    private long negativeTtlSeconds;
+
+    Ticker ticker = Ticker.systemTicker();
+
+    private Cache<String, PostDTO> posts;
+    private Cache<String, Boolean> unknownTokens;
+    private final AtomicLong writes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        posts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        unknownTokens = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, posts, "sharedPosts");
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownTokens, "sharedPostMisses");
+        logger.info("Shared post cache: max {} (ttl {}s), negative max {} (ttl {}s)",
+                maxSize, ttlSeconds, negativeMaxSize, negativeTtlSeconds);
+    }
+
+    public Optional<PostDTO> get(String shareToken, Function<String, Optional<PostDTO>> loader) {
+        PostDTO cached = posts.getIfPresent(shareToken);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (unknownTokens.getIfPresent(shareToken) != null) {
+            return Optional.empty();
+        }
+        long generation = writes.get();
+        Optional<PostDTO> loaded = loader.apply(shareToken);
+        // A load that overlapped a committed write may hold rows from before it
+        if (writes.get() == generation) {
+            if (loaded.isPresent()) {
+                posts.put(shareToken, loaded.get());
+            } else {
+                unknownTokens.put(shareToken, Boolean.TRUE);
+            }
+        }
+        return loaded;
+    }
+
+    public void tokenAssigned(String shareToken) {
+        TransactionCallbacks.afterCommit(() -> {
+            writes.incrementAndGet();
+            unknownTokens.invalidate(shareToken);
+        });
+    }
+
+    /**
+     * Replace the cached summary with a copy carrying the new count; the old one may be in use
+     */
+    public void patchShareCount(String shareToken, int shareCount) {
+        TransactionCallbacks.afterCommit(() -> posts.asMap().computeIfPresent(shareToken, (token, cached) -> {
+            PostDTO copy = cached.copy();
+            copy.setShareCount(shareCount);
+            return copy;
+        }));
+    }
+
+    public void invalidatePost(Long postId) {
+        TransactionCallbacks.afterCommit(() -> {
+            writes.incrementAndGet();
+            posts.asMap().values().removeIf(dto -> postId.equals(dto.getId()));
+        });
+    }
+
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> {
+            writes.incrementAndGet();
+            posts.invalidateAll();
+        });
+    }
+}
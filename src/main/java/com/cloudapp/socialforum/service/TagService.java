@@ -0,0 +1,194 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostText;
+import com.cloudapp.socialforum.model.TagStat;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.TagStatRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hashtags parsed from post content at write time
+ * Tags land in post_tags with the post's creation time, and tag_stats keeps a post count per tag.
+ * Both are written with INSERT IGNORE (stats: create, then increment) so replaying a post (backfill, retries) never
+ * counts it twice: stats move only by the tag rows that were actually inserted or deleted.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TagService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagService.class);
+
+    /** A # not glued to a preceding word, so "C#" and "&#39;" are not tags */
+    private static final Pattern HASHTAG = Pattern.compile("(?<![\\p{L}\\p{N}_&#])#([\\p{L}\\p{N}_]{1,100})");
+    private static final int MAX_TAGS_PER_POST = 30;
+
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO post_tags (tag, post_id, created_at) VALUES (?, ?, ?)";
+    private static final String STAT_CREATE_SQL =
+            "INSERT IGNORE INTO tag_stats (tag, post_count, last_used_at) VALUES (?, 0, ?)";
+    private static final String STAT_INCREMENT_SQL =
+            "UPDATE tag_stats SET post_count = post_count + ?, "
+            + "last_used_at = GREATEST(COALESCE(last_used_at, ?), ?) WHERE tag = ?";
+    private static final String STAT_RECOUNT_SQL =
+            "UPDATE tag_stats SET post_count = (SELECT COUNT(*) FROM post_tags WHERE tag = ?) WHERE tag = ?";
+    private static final String STAT_DECREMENT_SQL =
+            "UPDATE tag_stats SET post_count = GREATEST(post_count - ?, 0) WHERE tag = ?";
+    private static final String COUNT_BY_POST_SQL =
+            "SELECT tag, COUNT(*) FROM post_tags WHERE post_id = ? GROUP BY tag";
+    private static final String DELETE_BY_POST_SQL = "DELETE FROM post_tags WHERE post_id = ?";
+    private static final String COUNT_BY_USER_SQL =
+            "SELECT tag, COUNT(*) FROM post_tags WHERE post_id IN (SELECT id FROM posts WHERE user_id = ?) GROUP BY tag";
+    private static final String DELETE_BY_USER_SQL =
+            "DELETE FROM post_tags WHERE post_id IN (SELECT id FROM posts WHERE user_id = ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private TagStatRepository tagStatRepository;
+
+    /**
+     * Distinct lower-cased hashtags in order of first appearance, without the leading #
+     */
+    public static Set<String> extractTags(String content) {
+        Set<String> tags = new LinkedHashSet<>();
+        if (content == null || content.indexOf('#') < 0) {
+            return tags;
+        }
+        Matcher matcher = HASHTAG.matcher(content);
+        while (matcher.find() && tags.size() < MAX_TAGS_PER_POST) {
+            String tag = matcher.group(1);
+            if (tag.codePoints().anyMatch(Character::isLetter)) {
+                tags.add(tag.toLowerCase(Locale.ROOT));
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Normalize a user-typed tag query ("#AI", " ai ") to the stored form
+     */
+    public static String normalizeTag(String query) {
+        String tag = query.trim();
+        while (tag.startsWith("#")) {
+            tag = tag.substring(1);
+        }
+        return tag.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Tag a newly written post; runs in the caller's transaction and issues no SQL for untagged posts
+     */
+    @Transactional
+    public void recordPostTags(Long postId, String content, LocalDateTime createdAt) {
+        List<PostText> post = List.of(new PostText(postId, content, createdAt));
+        insertTags(post);
+    }
+
+    /**
+     * Tag every existing post with id in [fromId, toId) in one transaction
+     * Safe to re-run: already tagged posts are skipped by the primary key.
+     * @return number of tag rows inserted
+     */
+    @Transactional
+    public int backfillRange(Long fromId, Long toId) {
+        return insertTags(postRepository.findPostTextsInRange(fromId, toId));
+    }
+
+    @Transactional
+    public void removePostTags(Long postId) {
+        removeTags(COUNT_BY_POST_SQL, DELETE_BY_POST_SQL, postId);
+    }
+
+    /**
+     * Drop the tags of every post by a user; must run before the posts themselves are deleted
+     */
+    @Transactional
+    public void removeUserTags(Long userId) {
+        removeTags(COUNT_BY_USER_SQL, DELETE_BY_USER_SQL, userId);
+    }
+
+    public List<TagStat> getPopularTags(int limit) {
+        return tagStatRepository.findPopular(PageRequest.of(0, limit));
+    }
+
+    private int insertTags(List<PostText> posts) {
+        List<Object[]> rows = new ArrayList<>();
+        for (PostText post : posts) {
+            Timestamp createdAt = Timestamp.valueOf(post.getCreatedAt());
+            for (String tag : extractTags(post.getContent())) {
+                rows.add(new Object[]{tag, post.getId(), createdAt});
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        int[] results = jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        Map<String, Long> deltas = new HashMap<>();
+        Map<String, Timestamp> lastUsed = new HashMap<>();
+        Set<String> recount = new HashSet<>();
+        int inserted = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            String tag = (String) rows.get(i)[0];
+            Timestamp createdAt = (Timestamp) rows.get(i)[2];
+            if (results[i] == Statement.SUCCESS_NO_INFO) {
+                recount.add(tag);
+            } else if (results[i] > 0) {
+                deltas.merge(tag, 1L, Long::sum);
+                inserted++;
+            } else {
+                continue;
+            }
+            lastUsed.merge(tag, createdAt, (a, b) -> a.after(b) ? a : b);
+        }
+
+        recount.forEach(deltas::remove);
+        // Create missing stat rows first, then increment: a concurrent creator is ignored and
+        // both increments land on the row, without MySQL's deprecated VALUES() in an upsert
+        List<Object[]> creates = new ArrayList<>();
+        List<Object[]> increments = new ArrayList<>();
+        lastUsed.forEach((tag, at) -> {
+            creates.add(new Object[]{tag, at});
+            increments.add(new Object[]{deltas.getOrDefault(tag, 0L), at, at, tag});
+        });
+        jdbcTemplate.batchUpdate(STAT_CREATE_SQL, creates);
+        jdbcTemplate.batchUpdate(STAT_INCREMENT_SQL, increments);
+        jdbcTemplate.batchUpdate(STAT_RECOUNT_SQL, recount.stream().map(tag -> new Object[]{tag, tag}).toList());
+        logger.debug("Inserted {} post tags across {} tags", inserted, deltas.size() + recount.size());
+        return inserted;
+    }
+
+    private void removeTags(String countSql, String deleteSql, Long id) {
+        List<Object[]> decrements = jdbcTemplate.query(countSql,
+                (rs, rowNum) -> new Object[]{rs.getLong(2), rs.getString(1)}, id);
+        if (decrements.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(deleteSql, id);
+        jdbcTemplate.batchUpdate(STAT_DECREMENT_SQL, decrements);
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloudapp.socialforum.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Deferral of in-memory side effects (caches, indexes, rankings) until the database write commits
+ * A rolled-back write then leaves them alone, and a concurrent load cannot re-cache the old rows
+ * after an invalidation. Outside a transaction the action runs immediately.
+ */
+final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
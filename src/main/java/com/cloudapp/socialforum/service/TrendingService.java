@@ -0,0 +1,304 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.model.TrendingScore;
+import com.cloudapp.socialforum.repository.TrendingScoreRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Incrementally maintained trending ranking with exponential time decay
+ * Every engagement adds weight * e^(lambda * (t - epoch)) to the post's score. Because all scores
+ * share one epoch, decay never has to be applied to stored values: their relative order is fixed
+ * until a new event arrives, and the ranking is a sorted set that serves the top k in O(k).
+ * The epoch is moved forward (rescaling every score once) before the exponent can overflow.
+ * An unlike or comment delete cannot subtract at the current weight: the event it reverses was
+ * counted earlier, at a lower weight. It subtracts the contribution of the latest like (or comment)
+ * on that post instead, which bounds the reversed event's contribution from above (nothing is
+ * subtracted when no such event was seen since startup).
+ * Only the best {@code trending.capacity} posts are tracked; scores are checkpointed to
+ * trending_scores so a restart does not start from an empty ranking. Every instance merges its
+ * scores into the same table, keeping the higher decayed score per post, so one node's checkpoint
+ * never erases what another node saw.
+ */
+@Component
+public class TrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    /** Rebase once scores have grown by e^50; keeps doubles far from overflow */
+    private static final double REBASE_EXPONENT = 50.0;
+
+    private static final int LIKE = 0;
+    private static final int COMMENT = 1;
+    private static final int OTHER = -1;
+
+    /** Checkpoint rows not refreshed for this many half-lives are below 0.1% of their score */
+    private static final int RETAINED_HALF_LIVES = 10;
+
+    private static final Comparator<Ranked> BY_SCORE_DESC = Comparator
+            .comparingDouble(Ranked::score).reversed()
+            .thenComparing(Comparator.comparingLong(Ranked::postId).reversed());
+
+    @Autowired
+    private TrendingScoreRepository trendingScoreRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${trending.half-life-hours:12}")
+    private double halfLifeHours;
+
+    @Value("${trending.capacity:1000}")
+    private int capacity;
+
+    @Value("${trending.weights.post:1.0}")
+    private double postWeight;
+
+    @Value("${trending.weights.like:1.0}")
+    private double likeWeight;
+
+    @Value("${trending.weights.comment:2.0}")
+    private double commentWeight;
+
+    @Value("${trending.weights.share:3.0}")
+    private double shareWeight;
+
+    private final Map<Long, Double> scores = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Ranked> ranking = new ConcurrentSkipListSet<>(BY_SCORE_DESC);
+    /** Raw contribution of the most recent like and comment per tracked post */
+    private final Map<Long, double[]> latestRaw = new ConcurrentHashMap<>();
+    private Clock clock = Clock.systemUTC();
+
+    private double lambda;
+    private volatile long epochSeconds;
+
+    @PostConstruct
+    public void init() {
+        lambda = Math.log(2) / (halfLifeHours * 3600);
+        epochSeconds = nowSeconds();
+    }
+
+    /**
+     * Time source for decay; tests pin it to move through half-lives
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void recordNewPost(Long postId) {
+        record(postId, postWeight, OTHER, 1);
+    }
+
+    public void recordLike(Long postId, boolean liked) {
+        record(postId, liked ? likeWeight : -likeWeight, LIKE, 1);
+    }
+
+    /**
+     * @param count comments added, or negative for comments removed (a thread delete removes its replies too)
+     */
+    public void recordComment(Long postId, int count) {
+        if (count != 0) {
+            record(postId, count > 0 ? commentWeight : -commentWeight, COMMENT, Math.abs(count));
+        }
+    }
+
+    public void recordShare(Long postId) {
+        record(postId, shareWeight, OTHER, 1);
+    }
+
+    /**
+     * Drops the post from the ranking and from the checkpoint, so a restart does not bring it back
+     */
+    public void removePost(Long postId) {
+        trendingScoreRepository.deleteAllByIdInBatch(List.of(postId));
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                latestRaw.remove(postId);
+                Double old = scores.remove(postId);
+                if (old != null) {
+                    ranking.remove(new Ranked(postId, old));
+                }
+            }
+        });
+    }
+
+    /**
+     * Ids of the highest scoring posts, best first
+     */
+    public List<Long> getTopPostIds(int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, capacity));
+        Iterator<Ranked> iterator = ranking.iterator();
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add(iterator.next().postId());
+        }
+        return ids;
+    }
+
+    /**
+     * Current decayed score of a post, 0 when it is not tracked
+     */
+    public double getScore(Long postId) {
+        Double raw = scores.get(postId);
+        return raw == null ? 0.0 : raw * Math.exp(-lambda * (nowSeconds() - epochSeconds));
+    }
+
+    /**
+     * Applied after the surrounding transaction commits, so a rolled-back write never reaches the ranking
+     */
+    private void record(Long postId, double weight, int kind, int count) {
+        if (postId != null) {
+            TransactionCallbacks.afterCommit(() -> apply(postId, weight, nowSeconds(), kind, count));
+        }
+    }
+
+    private synchronized void apply(Long postId, double weight, long atSeconds, int kind, int count) {
+        if (lambda * (atSeconds - epochSeconds) > REBASE_EXPONENT) {
+            rebase(atSeconds);
+        }
+        Double old = scores.get(postId);
+        if (old == null && weight < 0) {
+            return;
+        }
+        double delta = weight * Math.exp(lambda * (atSeconds - epochSeconds));
+        if (kind != OTHER) {
+            double[] latest = latestRaw.computeIfAbsent(postId, id -> new double[2]);
+            if (delta > 0) {
+                latest[kind] = delta;
+            } else {
+                // Every remaining event of this kind counted at most as much as the latest one
+                delta = -Math.min(-delta, latest[kind]);
+            }
+        }
+        delta *= count;
+        double updated = (old != null ? old : 0.0) + delta;
+        if (old != null) {
+            ranking.remove(new Ranked(postId, old));
+        }
+        // Relative epsilon: a like and its unlike in the same second cancel up to rounding
+        if (updated <= Math.abs(delta) * 1e-9) {
+            scores.remove(postId);
+            latestRaw.remove(postId);
+            return;
+        }
+        scores.put(postId, updated);
+        ranking.add(new Ranked(postId, updated));
+
+        while (scores.size() > capacity) {
+            Ranked lowest = ranking.pollLast();
+            if (lowest == null) {
+                break;
+            }
+            scores.remove(lowest.postId());
+            latestRaw.remove(lowest.postId());
+        }
+    }
+
+    private void rebase(long newEpochSeconds) {
+        double factor = Math.exp(-lambda * (newEpochSeconds - epochSeconds));
+        ranking.clear();
+        latestRaw.values().forEach(latest -> {
+            latest[LIKE] *= factor;
+            latest[COMMENT] *= factor;
+        });
+        scores.replaceAll((id, raw) -> raw * factor);
+        scores.forEach((id, raw) -> ranking.add(new Ranked(id, raw)));
+        epochSeconds = newEpochSeconds;
+        logger.debug("Trending scores rebased to epoch {}", newEpochSeconds);
+    }
+
+    /**
+     * Load the last checkpoint, decaying each score from the time it was written
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<TrendingScore> saved = trendingScoreRepository.findAll();
+            for (TrendingScore row : saved) {
+                apply(row.getPostId(), row.getScore(), toSeconds(row.getScoredAt()), OTHER, 1);
+            }
+            logger.info("Trending ranking warmed with {} posts from checkpoint", saved.size());
+        } catch (Exception e) {
+            logger.warn("Could not load trending checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Merge the current ranking into the checkpoint table and prune rows that have decayed away
+     * A stored row is only replaced when this instance's score is higher once both are decayed to now.
+     */
+    @Scheduled(fixedDelayString = "${trending.checkpoint-interval-ms:300000}",
+               initialDelayString = "${trending.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        List<TrendingScore> snapshot = new ArrayList<>();
+        long now = nowSeconds();
+        LocalDateTime scoredAt = LocalDateTime.ofInstant(Instant.ofEpochSecond(now), ZoneId.systemDefault());
+        synchronized (this) {
+            double factor = Math.exp(-lambda * (now - epochSeconds));
+            scores.forEach((id, raw) -> snapshot.add(new TrendingScore(id, raw * factor, scoredAt)));
+        }
+        try {
+            int written = new TransactionTemplate(transactionManager).execute(status -> {
+                Map<Long, TrendingScore> stored = new HashMap<>();
+                trendingScoreRepository.findAllById(snapshot.stream().map(TrendingScore::getPostId).toList())
+                        .forEach(row -> stored.put(row.getPostId(), row));
+                List<TrendingScore> changed = new ArrayList<>(snapshot.size());
+                for (TrendingScore row : snapshot) {
+                    TrendingScore existing = stored.get(row.getPostId());
+                    if (existing == null || decayedTo(existing, now) < row.getScore()) {
+                        changed.add(row);
+                    }
+                }
+                trendingScoreRepository.saveAll(changed);
+                long retainedSeconds = (long) (RETAINED_HALF_LIVES * halfLifeHours * 3600);
+                trendingScoreRepository.deleteScoredBefore(scoredAt.minusSeconds(retainedSeconds));
+                return changed.size();
+            });
+            logger.debug("Trending checkpoint merged {} of {} posts", written, snapshot.size());
+        } catch (Exception e) {
+            logger.error("Failed to write trending checkpoint: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+    }
+
+    private long nowSeconds() {
+        return clock.millis() / 1000;
+    }
+
+    private double decayedTo(TrendingScore row, long atSeconds) {
+        return row.getScore() * Math.exp(-lambda * (atSeconds - toSeconds(row.getScoredAt())));
+    }
+
+    private long toSeconds(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private record Ranked(long postId, double score) {
+    }
+}
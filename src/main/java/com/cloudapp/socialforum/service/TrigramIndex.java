@@ -0,0 +1,328 @@
+package com.cloudapp.socialforum.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant lookup over a set of distinct strings
+ * Every string is split into padded trigrams ("$$a", "$ab", "abc", ..., "yz$"), each with a
+ * posting list of string numbers in ascending order. A lookup merges the query's posting lists to
+ * count trigram overlap per candidate, keeps only those that could be within the edit budget
+ * (one edit changes at most three trigrams), then verifies them with a Levenshtein check that
+ * stops as soon as the budget is exceeded. Removed strings are tombstoned; once they make up a
+ * quarter of the index they are swept out and the rest renumbered.
+ * Strings are expected to be lower-cased by the caller. Thread-safe; writers take a write lock.
+ */
+public class TrigramIndex {
+
+    private static final char PAD = '$';
+    private static final int MAX_QUERY_LENGTH = 64;
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<String, Integer> numbers = new HashMap<>();
+    private List<String> strings = new ArrayList<>();
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+
+    /**
+     * Edits tolerated for a term of this length: none for very short terms, then one, then two
+     */
+    public static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    public void add(String value) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = numbers.get(value);
+            if (existing != null) {
+                if (removed.get(existing)) {
+                    removed.clear(existing);
+                    removedCount--;
+                }
+                return;
+            }
+            int number = strings.size();
+            strings.add(value);
+            numbers.put(value, number);
+            for (long trigram : trigrams(value)) {
+                postings.computeIfAbsent(trigram, t -> new IntList()).add(number);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hide a string from lookups; re-adding it restores the same entry
+     */
+    public void remove(String value) {
+        lock.writeLock().lock();
+        try {
+            Integer number = numbers.get(value);
+            if (number == null || removed.get(number)) {
+                return;
+            }
+            removed.set(number);
+            removedCount++;
+            if (removedCount >= MIN_REMOVED_TO_COMPACT && removedCount * 4 >= strings.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return strings.size() - removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Strings within {@link #maxEdits(int)} of the query, closest first
+     * Ties are broken by trigram similarity, then alphabetically.
+     */
+    public List<Match> lookup(String query, int limit) {
+        if (query.isEmpty() || query.length() > MAX_QUERY_LENGTH) {
+            return List.of();
+        }
+        int maxEdits = maxEdits(query.length());
+        long[] queryTrigrams = trigrams(query);
+        int minOverlap = Math.max(1, queryTrigrams.length - 3 * maxEdits);
+
+        lock.readLock().lock();
+        try {
+            if (strings.isEmpty()) {
+                return List.of();
+            }
+            List<IntList> lists = new ArrayList<>(queryTrigrams.length);
+            for (long trigram : queryTrigrams) {
+                IntList list = postings.get(trigram);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            if (lists.size() < minOverlap) {
+                return List.of();
+            }
+
+            List<Match> matches = new ArrayList<>();
+            new PostingsMerge(lists).forEach((number, overlap) -> {
+                if (overlap < minOverlap || removed.get(number)) {
+                    return;
+                }
+                String candidate = strings.get(number);
+                if (Math.abs(candidate.length() - query.length()) > maxEdits) {
+                    return;
+                }
+                int distance = boundedLevenshtein(query, candidate, maxEdits);
+                if (distance <= maxEdits) {
+                    int candidateTrigrams = candidate.length() + 1;
+                    double similarity = (double) overlap / (queryTrigrams.length + candidateTrigrams - overlap);
+                    matches.add(new Match(candidate, distance, similarity));
+                }
+            });
+            matches.sort(Comparator.comparingInt(Match::distance)
+                    .thenComparing(Comparator.comparingDouble(Match::similarity).reversed())
+                    .thenComparing(Match::value));
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop tombstoned strings and renumber the rest densely; renumbering keeps the order, so
+     * posting lists stay sorted
+     */
+    private void compact() {
+        int[] remap = new int[strings.size()];
+        List<String> live = new ArrayList<>(strings.size() - removedCount);
+        numbers.clear();
+        for (int number = 0; number < strings.size(); number++) {
+            if (removed.get(number)) {
+                remap[number] = -1;
+            } else {
+                remap[number] = live.size();
+                numbers.put(strings.get(number), live.size());
+                live.add(strings.get(number));
+            }
+        }
+        postings.values().removeIf(list -> list.compact(remap) == 0);
+        strings = live;
+        removed.clear();
+        removedCount = 0;
+    }
+
+    /**
+     * Edit distance, or maxEdits + 1 as soon as every alignment needs more than maxEdits edits
+     * Only the diagonal band of width 2 * maxEdits + 1 is computed.
+     */
+    static int boundedLevenshtein(String a, String b, int maxEdits) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int outside = maxEdits + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= maxEdits ? j : outside;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxEdits);
+            int to = Math.min(m, i + maxEdits);
+            Arrays.fill(current, outside);
+            current[0] = i <= maxEdits ? i : outside;
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return outside;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
+    /**
+     * Distinct trigrams of "$$" + value + "$", each packed into the low 48 bits of a long
+     */
+    static long[] trigrams(String value) {
+        String padded = "" + PAD + PAD + value + PAD;
+        long[] packed = new long[padded.length() - 2];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return Arrays.stream(packed).distinct().toArray();
+    }
+
+    private static final class IntList {
+        private int[] items = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        /**
+         * Drop numbers mapped to -1 and renumber the rest; trims the array when mostly empty
+         */
+        int compact(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int number = remap[items[i]];
+                if (number >= 0) {
+                    items[kept++] = number;
+                }
+            }
+            size = kept;
+            if (kept > 0 && kept * 4 < items.length) {
+                items = Arrays.copyOf(items, kept * 2);
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * K-way merge over ascending posting lists, reporting each number once with the count of
+     * lists containing it; memory is one cursor per list instead of a counter per indexed string
+     */
+    private static final class PostingsMerge {
+        private final IntList[] lists;
+        private final int[] cursors;
+        /** Binary min-heap of list indexes, ordered by each list's current number */
+        private final int[] heap;
+        private int heapSize;
+
+        PostingsMerge(List<IntList> lists) {
+            this.lists = lists.toArray(new IntList[0]);
+            this.cursors = new int[this.lists.length];
+            this.heap = new int[this.lists.length];
+            for (int i = 0; i < this.lists.length; i++) {
+                if (this.lists[i].size > 0) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        void forEach(OverlapConsumer consumer) {
+            while (heapSize > 0) {
+                int number = head(heap[0]);
+                int overlap = 0;
+                while (heapSize > 0 && head(heap[0]) == number) {
+                    overlap++;
+                    int list = heap[0];
+                    if (++cursors[list] < lists[list].size) {
+                        siftDown(0);
+                    } else {
+                        heap[0] = heap[--heapSize];
+                        siftDown(0);
+                    }
+                }
+                consumer.accept(number, overlap);
+            }
+        }
+
+        private int head(int list) {
+            return lists[list].items[cursors[list]];
+        }
+
+        private void siftDown(int at) {
+            while (true) {
+                int smallest = at;
+                int left = 2 * at + 1;
+                int right = left + 1;
+                if (left < heapSize && head(heap[left]) < head(heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < heapSize && head(heap[right]) < head(heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == at) {
+                    return;
+                }
+                int swap = heap[at];
+                heap[at] = heap[smallest];
+                heap[smallest] = swap;
+                at = smallest;
+            }
+        }
+    }
+
+    private interface OverlapConsumer {
+        void accept(int number, int overlap);
+    }
+
+    /**
+     * @param similarity trigram Jaccard similarity between query and value, 0..1
+     */
+    public record Match(String value, int distance, double similarity) {
+    }
+}
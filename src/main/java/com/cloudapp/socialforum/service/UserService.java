@@ -33,6 +33,27 @@ public class UserService {
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private FeedPageCache feedPageCache;
+
+    @Autowired
+    private SharedPostCache sharedPostCache;
+
+    @Autowired
+    private LikedPostIndex likedPostIndex;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private UsernamePrefixIndex usernamePrefixIndex;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
     @Transactional
     public User registerUser(String username, String email, String password) {
         logger.info("Registering new user: {}", username);
@@ -70,6 +91,7 @@ public class UserService {
         user.setRole("USER"); // Default role
         
         User savedUser = userRepository.save(user);
+        usernamePrefixIndex.put(savedUser);
         logger.info("User registered successfully with ID: {} and role: {}", savedUser.getId(), savedUser.getRole());
         
         return savedUser;
@@ -83,6 +105,13 @@ public class UserService {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * Lazy reference for foreign keys on write paths; no SELECT, a bad id surfaces as an FK violation
+     */
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
@@ -145,8 +174,16 @@ public class UserService {
             logger.error("Error during S3 cleanup for user {}: {}", userId, e.getMessage());
         }
         
+        tagService.removeUserTags(userId);
+        
         // JPA CascadeType.ALL on User entity will handle posts, comments, likes in RDS
         userRepository.deleteById(userId);
+        feedPageCache.invalidateAll();
+        sharedPostCache.invalidateAll();
+        searchResultCache.invalidateAll();
+        likedPostIndex.evictUser(userId);
+        usernamePrefixIndex.remove(userId);
+        userSnapshotCache.evict(userId);
         logger.info("User and all associated data deleted successfully (RDS + S3)");
     }
     
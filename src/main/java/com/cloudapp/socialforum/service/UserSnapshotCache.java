@@ -0,0 +1,69 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * User id to User snapshot cache, consulted by JwtAuthenticationFilter and by controllers that
+ * need more than the token's claims
+ * Deleted users are cached as absent. Role changes and deletions evict the entry after commit on
+ * this instance; elsewhere the persisted token version takes effect within one TTL.
+ * Returned users are the cached instances, not detached copies.
+ */
+@Component
+public class UserSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSnapshotCache.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${user.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<Long, Optional<User>> users;
+
+    @PostConstruct
+    public void init() {
+        users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "userSnapshots");
+        logger.info("User snapshot cache: max {} (ttl {}s)", maxSize, ttlSeconds);
+    }
+
+    public Optional<User> get(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return users.get(userId, userRepository::findById);
+    }
+
+    /**
+     * Drop the snapshot after the surrounding transaction commits
+     */
+    public void evict(Long userId) {
+        TransactionCallbacks.afterCommit(() -> users.invalidate(userId));
+    }
+}
@@ -0,0 +1,252 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.AuthorSummary;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Username typeahead: lower-cased usernames in one sorted array, searched by binary search
+ * A prefix query is a lower-bound search plus a forward walk of at most {@code limit}
+ * entries, so the only allocation is the result list. The arrays are an immutable snapshot
+ * swapped on every change (copy-on-write); registrations and deletions are rare next to
+ * keystrokes, and readers never lock. A TrigramIndex over the same keys serves typo-tolerant
+ * lookups for fuzzy search.
+ * Local writes apply after commit. Users registered on other instances are picked up by a
+ * periodic query for ids above the highest one seen; renames and deletions made elsewhere
+ * wait for the less frequent full reload.
+ */
+@Component
+public class UsernamePrefixIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernamePrefixIndex.class);
+
+    private static final Comparator<AuthorSummary> ORDER =
+            Comparator.comparing((AuthorSummary u) -> key(u.getUsername())).thenComparing(AuthorSummary::getId);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new AuthorSummary[0]);
+    private volatile TrigramIndex trigrams = new TrigramIndex();
+    /** Highest user id loaded from the database; null until the first load succeeds */
+    private volatile Long highestLoadedId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user.index.full-reload-interval-ms:900000}",
+               initialDelayString = "${user.index.full-reload-interval-ms:900000}")
+    public void load() {
+        try {
+            replaceAll(userRepository.findAllAuthorSummaries());
+            logger.info("Username prefix index loaded with {} users", size());
+        } catch (Exception e) {
+            logger.error("Could not load username prefix index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Merge in users registered since the last load, wherever they registered
+     */
+    @Scheduled(fixedDelayString = "${user.index.refresh-interval-ms:30000}",
+               initialDelayString = "${user.index.refresh-interval-ms:30000}")
+    public void refresh() {
+        Long after = highestLoadedId;
+        if (after == null) {
+            return;
+        }
+        try {
+            List<AuthorSummary> added = userRepository.findAuthorSummariesAfter(after);
+            if (!added.isEmpty()) {
+                merge(added);
+                logger.debug("Username prefix index picked up {} new users", added.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not refresh username prefix index: {}", e.getMessage());
+        }
+    }
+
+    synchronized void replaceAll(List<AuthorSummary> users) {
+        List<AuthorSummary> sorted = new ArrayList<>(users);
+        sorted.sort(ORDER);
+        String[] keys = new String[sorted.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(sorted.get(i).getUsername());
+        }
+        TrigramIndex rebuilt = new TrigramIndex();
+        for (String key : keys) {
+            rebuilt.add(key);
+        }
+        snapshot = new Snapshot(keys, sorted.toArray(new AuthorSummary[0]));
+        trigrams = rebuilt;
+        highestLoadedId = users.stream().mapToLong(AuthorSummary::getId).max().orElse(0L);
+    }
+
+    /**
+     * One linear merge of a batch into the snapshot; entries with the same ids are replaced
+     */
+    synchronized void merge(List<AuthorSummary> users) {
+        List<AuthorSummary> added = new ArrayList<>(users);
+        added.sort(ORDER);
+        Set<Long> ids = new HashSet<>();
+        users.forEach(user -> ids.add(user.getId()));
+        Snapshot current = snapshot;
+        int size = current.keys().length + added.size();
+        List<String> keys = new ArrayList<>(size);
+        List<AuthorSummary> merged = new ArrayList<>(size);
+        int i = 0;
+        int j = 0;
+        while (i < current.keys().length || j < added.size()) {
+            if (i < current.keys().length && ids.contains(current.users()[i].getId())) {
+                i++;
+            } else if (j == added.size()
+                    || (i < current.keys().length && ORDER.compare(current.users()[i], added.get(j)) <= 0)) {
+                keys.add(current.keys()[i]);
+                merged.add(current.users()[i++]);
+            } else {
+                String key = key(added.get(j).getUsername());
+                trigrams.add(key);
+                keys.add(key);
+                merged.add(added.get(j++));
+            }
+        }
+        snapshot = new Snapshot(keys.toArray(new String[0]), merged.toArray(new AuthorSummary[0]));
+        long highest = users.stream().mapToLong(AuthorSummary::getId).max().orElse(0L);
+        if (highestLoadedId == null || highest > highestLoadedId) {
+            highestLoadedId = highest;
+        }
+    }
+
+    /**
+     * Users whose username starts with the prefix (case-insensitive), alphabetically
+     */
+    public List<AuthorSummary> suggest(String prefix, int limit) {
+        String key = key(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        List<AuthorSummary> hits = new ArrayList<>(limit);
+        for (int i = lowerBound(current.keys(), key); i < current.keys().length && hits.size() < limit; i++) {
+            if (!current.keys()[i].startsWith(key)) {
+                break;
+            }
+            hits.add(current.users()[i]);
+        }
+        return hits;
+    }
+
+    /**
+     * Users whose username is within a few typos of the query, closest first
+     */
+    public List<AuthorSummary> fuzzy(String query, int limit) {
+        String key = key(query);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        List<AuthorSummary> hits = new ArrayList<>(limit);
+        for (TrigramIndex.Match match : trigrams.lookup(key, limit)) {
+            for (int i = lowerBound(current.keys(), match.value());
+                 i < current.keys().length && current.keys()[i].equals(match.value()) && hits.size() < limit; i++) {
+                hits.add(current.users()[i]);
+            }
+        }
+        return hits;
+    }
+
+    public int size() {
+        return snapshot.keys().length;
+    }
+
+    /**
+     * Add or refresh a user once the surrounding transaction commits
+     */
+    public void put(User user) {
+        AuthorSummary summary = AuthorSummary.fromUser(user);
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                Snapshot current = without(snapshot, summary.getId());
+                String key = key(summary.getUsername());
+                trigrams.add(key);
+                int at = lowerBound(current.keys(), key);
+                while (at < current.keys().length && current.keys()[at].equals(key)
+                        && current.users()[at].getId() < summary.getId()) {
+                    at++;
+                }
+                snapshot = new Snapshot(insert(current.keys(), at, key), insert(current.users(), at, summary));
+            }
+        });
+    }
+
+    public void remove(Long userId) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                snapshot = without(snapshot, userId);
+            }
+        });
+    }
+
+    private Snapshot without(Snapshot current, Long userId) {
+        AuthorSummary[] users = current.users();
+        for (int i = 0; i < users.length; i++) {
+            if (users[i].getId().equals(userId)) {
+                Snapshot updated = new Snapshot(delete(current.keys(), i), delete(users, i));
+                String key = current.keys()[i];
+                int at = lowerBound(updated.keys(), key);
+                if (at == updated.keys().length || !updated.keys()[at].equals(key)) {
+                    trigrams.remove(key);
+                }
+                return updated;
+            }
+        }
+        return current;
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static <T> T[] insert(T[] array, int at, T value) {
+        T[] copy = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, at, copy, at + 1, array.length - at);
+        copy[at] = value;
+        return copy;
+    }
+
+    private static <T> T[] delete(T[] array, int at) {
+        T[] copy = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+        return copy;
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(String[] keys, AuthorSummary[] users) {
+    }
+}
@@ -218,10 +218,10 @@ async function deleteUser(id) {
 // --- Global Posts ---
 async function loadPosts() {
     try {
-        const res = await authFetch('/api/posts'); 
+        // Streamed admin listing: { posts: [], nextCursor: ... }
+        const res = await authFetch('/api/admin/posts?limit=200'); 
         if (res.ok) {
             const data = await res.json();
-            // Handle paginated response structure { posts: [], currentPage: 0, ... }
             const postsArray = Array.isArray(data) ? data : (data.posts || []);
             
             const tbody = document.getElementById('postsTableBody');
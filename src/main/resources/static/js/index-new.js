@@ -55,12 +55,14 @@ function logout() {
 // Render Posts with Likes
 async function renderPosts() {
     try {
-        const response = await fetch('/api/posts');
+        // Latest two comments per post arrive with the page (one query server-side)
+        const response = await fetch('/api/posts?commentPreview=2');
         if (response.ok) {
-            const posts = await response.json();
+            const data = await response.json();
+            const posts = Array.isArray(data) ? data : (data.posts || []);
             
             if (!Array.isArray(posts)) {
-                console.error('Expected array of posts but got:', posts);
+                console.error('Expected array of posts but got:', data);
                 postsFeed.innerHTML = '<div class="text-center">Invalid data received from server.</div>';
                 return;
             }
@@ -70,24 +72,27 @@ async function renderPosts() {
                 return;
             }
 
-            // Fetch like status for each post if logged in
-            const postsWithLikes = await Promise.all(posts.map(async (post) => {
-                const user = post.user || { username: 'Unknown' };
-                let likeCount = 0;
-                let isLiked = false;
-                
-                if (currentUser) {
-                    try {
-                        const likeStatusRes = await fetch(`/api/posts/${post.id}/likes/status?userId=${currentUser.id}`);
-                        if (likeStatusRes.ok) {
-                            const likeData = await likeStatusRes.json();
-                            likeCount = likeData.likeCount;
-                            isLiked = likeData.liked;
-                        }
-                    } catch (error) {
-                        console.error('Error fetching like status:', error);
+            // Fetch like status for the whole page in one request if logged in
+            const viewerStates = {};
+            if (currentUser) {
+                try {
+                    const stateRes = await fetch('/api/posts/viewer-state', {
+                        method: 'POST',
+                        headers: { 'Content-Type': 'application/json' },
+                        body: JSON.stringify({ postIds: posts.map(post => post.id), userId: currentUser.id })
+                    });
+                    if (stateRes.ok) {
+                        const stateData = await stateRes.json();
+                        (stateData.states || []).forEach(state => { viewerStates[state.postId] = state; });
                     }
+                } catch (error) {
+                    console.error('Error fetching like status:', error);
                 }
+            }
+
+            const postsWithLikes = posts.map(post => {
+                const user = post.user || { username: 'Unknown' };
+                const state = viewerStates[post.id];
                 
                 return {
                     id: post.id,
@@ -101,11 +106,12 @@ async function renderPosts() {
                     videoUrl: post.videoUrl,
                     mediaType: post.mediaType,
                     timestamp: formatTimestamp(post.createdAt),
-                    likes: likeCount,
-                    isLiked: isLiked,
-                    comments: post.comments ? post.comments.length : 0
+                    likes: state ? state.likeCount : (post.likesCount || 0),
+                    isLiked: state ? state.liked : (post.likedByMe || false),
+                    comments: state ? state.commentCount : (post.commentsCount || 0),
+                    commentPreview: post.commentPreview || []
                 };
-            }));
+            });
             
             postsFeed.innerHTML = postsWithLikes.map(post => createPostHTML(post)).join('');
         } else {
@@ -167,6 +173,16 @@ function createPostHTML(post) {
         </button>
     ` : '';
     
+    // Shown oldest first under the post; the API returns them newest first
+    const previewHtml = post.commentPreview.length === 0 ? '' : `
+            <div class="comment-preview" style="margin-top: 12px; font-size: 14px;">
+                ${post.commentPreview.slice().reverse().map(comment => `
+                    <div style="margin-top: 6px;">
+                        <strong>${escapeHtml(comment.user ? comment.user.username : 'Unknown')}</strong>
+                        ${sanitizeContent(comment.content)}
+                    </div>`).join('')}
+            </div>`;
+    
     return `
         <article class="card post-card">
             <div class="post-header">
@@ -192,6 +208,7 @@ function createPostHTML(post) {
                 </button>
                 ${deleteButton}
             </div>
+            ${previewHtml}
         </article>
     `;
 }
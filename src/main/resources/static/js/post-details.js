@@ -8,7 +8,6 @@ document.addEventListener('DOMContentLoaded', () => {
     checkLoginStatus();
     updateUserAvatar();
     loadPostDetails();
-    loadComments();
 });
 
 function checkLoginStatus() {
@@ -63,10 +62,23 @@ async function loadPostDetails() {
     }
 
     try {
-        const response = await fetch(`/api/posts/${postId}`);
+        // One aggregated call: post, first comments, like count and viewer state
+        const token = localStorage.getItem('authToken');
+        const headers = token ? { 'Authorization': `Bearer ${token}` } : {};
+        const response = await fetch(`/api/posts/${postId}/full`, { headers: headers });
         if (response.ok) {
-            const post = await response.json();
+            const data = await response.json();
+            const post = data.post;
+            if (data.likeCount !== undefined) {
+                post.likesCount = data.likeCount;
+            }
             renderPost(post);
+            if (data.comments) {
+                renderComments(data.comments, data.commentsNextCursor);
+            } else {
+                // Comments missed the server deadline; fetch them on their own
+                loadComments();
+            }
         } else {
             postContainer.innerHTML = '<div class="text-center">Post not found.</div>';
         }
@@ -126,7 +138,13 @@ function renderPost(post) {
     `;
 }
 
-async function loadComments() {
+function authHeaders() {
+    const token = localStorage.getItem('authToken');
+    return token ? { 'Authorization': `Bearer ${token}` } : {};
+}
+
+// Comments are paged with a cursor; "after" continues from the previous page's nextCursor
+async function loadComments(after) {
     const postId = getPostIdFromUrl();
     if (!postId) return;
 
@@ -139,17 +157,14 @@ async function loadComments() {
             headers['Authorization'] = `Bearer ${token}`;
         }
 
-        const response = await fetch(`/api/comments/post/${postId}`, {
+        const query = after ? `?after=${encodeURIComponent(after)}` : '';
+        const response = await fetch(`/api/comments/post/${postId}${query}`, {
             headers: headers
         });
 
         if (response.ok) {
-            const comments = await response.json();
-            if (comments.length === 0) {
-                commentsList.innerHTML = '<div class="text-center" style="padding: 20px; color: var(--text-secondary);">No comments yet. Be the first to comment!</div>';
-            } else {
-                commentsList.innerHTML = comments.map(comment => createCommentHTML(comment)).join('');
-            }
+            const data = await response.json();
+            renderComments(data.comments, data.nextCursor, Boolean(after));
         } else {
             commentsList.innerHTML = '<div class="text-center">Failed to load comments.</div>';
         }
@@ -159,6 +174,50 @@ async function loadComments() {
     }
 }
 
+function renderComments(comments, nextCursor, append) {
+    const existingMore = document.getElementById('loadMoreComments');
+    if (existingMore) existingMore.remove();
+
+    if (!append && comments.length === 0) {
+        commentsList.innerHTML = '<div class="text-center" style="padding: 20px; color: var(--text-secondary);">No comments yet. Be the first to comment!</div>';
+        return;
+    }
+    const html = comments.map(comment => createCommentHTML(comment)).join('');
+    if (append) {
+        commentsList.insertAdjacentHTML('beforeend', html);
+    } else {
+        commentsList.innerHTML = html;
+    }
+    if (nextCursor) {
+        commentsList.insertAdjacentHTML('beforeend',
+            `<button id="loadMoreComments" class="action-btn" data-cursor="${escapeHtml(nextCursor)}"
+                onclick="loadComments(this.dataset.cursor)">Load more comments</button>`);
+    }
+}
+
+async function loadReplies(commentId, after) {
+    const container = document.getElementById(`replies-${commentId}`);
+    if (!container) return;
+    try {
+        const query = after ? `?after=${encodeURIComponent(after)}` : '';
+        const response = await fetch(`/api/comments/${commentId}/replies${query}`, { headers: authHeaders() });
+        if (!response.ok) return;
+        const data = await response.json();
+        const moreButton = container.querySelector('.load-more-replies');
+        if (moreButton) moreButton.remove();
+        container.insertAdjacentHTML('beforeend', data.comments.map(reply => createCommentHTML(reply)).join(''));
+        if (data.nextCursor) {
+            container.insertAdjacentHTML('beforeend',
+                `<button class="action-btn load-more-replies" data-cursor="${escapeHtml(data.nextCursor)}"
+                    onclick="loadReplies(${commentId}, this.dataset.cursor)">More replies</button>`);
+        }
+        const toggle = document.getElementById(`reply-toggle-${commentId}`);
+        if (toggle) toggle.remove();
+    } catch (error) {
+        console.error('Error loading replies:', error);
+    }
+}
+
 function createCommentHTML(comment) {
     const user = comment.user || { username: 'Unknown' };
     const avatar = user.username ? user.username.charAt(0).toUpperCase() : '?';
@@ -168,6 +227,16 @@ function createCommentHTML(comment) {
     const safeUsername = escapeHtml(user.username);
     const safeContent = sanitizeContent(comment.content);
 
+    // Only top-level comments carry replies (one level of threading)
+    let repliesHTML = '';
+    if (!comment.parentId && comment.replyCount > 0) {
+        repliesHTML = `
+                <button id="reply-toggle-${comment.id}" class="action-btn" onclick="loadReplies(${comment.id})">
+                    View ${comment.replyCount} ${comment.replyCount === 1 ? 'reply' : 'replies'}
+                </button>
+                <div id="replies-${comment.id}" class="comment-replies" style="margin-left: 24px;"></div>`;
+    }
+
     return `
         <div class="comment-item">
             <div class="user-avatar" style="width: 32px; height: 32px; font-size: 0.8rem;">${avatar}</div>
@@ -177,6 +246,7 @@ function createCommentHTML(comment) {
                     <span class="comment-time">${timestamp}</span>
                 </div>
                 <div class="comment-text">${safeContent}</div>
+                ${repliesHTML}
             </div>
         </div>
     `;
@@ -230,8 +300,7 @@ async function submitComment() {
         if (response.ok) {
             console.log('Comment posted successfully');
             commentInput.value = '';
-            await loadComments(); // Reload comments
-            await loadPostDetails(); // Reload post to update comment count
+            await loadPostDetails(); // Reload post, comments and comment count in one call
         } else {
             const err = await response.json();
             console.error('Failed to post comment:', err);
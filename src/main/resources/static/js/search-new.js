@@ -86,7 +86,7 @@ function renderResults(data, query) {
         if (totalResults === 0) {
             searchResults.innerHTML = `
                 <div class="text-center" style="grid-column: 1/-1; color: var(--text-secondary); padding: 40px;">
-                    No results found for "${query}"
+                    No results found for "${escapeHtml(query)}"
                 </div>
             `;
             return;
@@ -114,7 +114,7 @@ function renderResults(data, query) {
         if (totalResults === 0) {
             searchResults.innerHTML = `
                 <div class="text-center" style="grid-column: 1/-1; color: var(--text-secondary); padding: 40px;">
-                    No people found for "${query}"
+                    No people found for "${escapeHtml(query)}"
                 </div>
             `;
             return;
@@ -130,7 +130,7 @@ function renderResults(data, query) {
         if (totalResults === 0) {
             searchResults.innerHTML = `
                 <div class="text-center" style="grid-column: 1/-1; color: var(--text-secondary); padding: 40px;">
-                    No posts with tag "${query}" found
+                    No posts with tag "${escapeHtml(query)}" found
                 </div>
             `;
             return;
@@ -146,7 +146,7 @@ function renderResults(data, query) {
 
 function createPostCard(post) {
     const user = post.user || { username: 'Unknown' };
-    const avatar = user.username ? user.username.charAt(0).toUpperCase() : '?';
+    const avatar = user.username ? escapeHtml(user.username.charAt(0).toUpperCase()) : '?';
     const timestamp = new Date(post.createdAt).toLocaleDateString('en-MY', {
         year: 'numeric',
         month: 'short',
@@ -161,17 +161,17 @@ function createPostCard(post) {
                     ${avatar}
                 </div>
                 <div>
-                    <div style="font-weight: 600; font-size: 15px;">${user.username}</div>
+                    <div style="font-weight: 600; font-size: 15px;">${escapeHtml(user.username)}</div>
                     <div style="font-size: 13px; color: var(--text-secondary);">${timestamp}</div>
                 </div>
             </div>
-            <div style="color: var(--text-primary);">${post.content.substring(0, 200)}${post.content.length > 200 ? '...' : ''}</div>
+            <div style="color: var(--text-primary);">${escapeHtml(post.content.substring(0, 200))}${post.content.length > 200 ? '...' : ''}</div>
         </div>
     `;
 }
 
 function createUserCard(user) {
-    const avatar = user.username ? user.username.charAt(0).toUpperCase() : '?';
+    const avatar = user.username ? escapeHtml(user.username.charAt(0).toUpperCase()) : '?';
 
     return `
         <div class="card" style="padding: 16px; cursor: pointer;" onclick="window.location.href='profile.html?id=${user.id}'">
@@ -180,9 +180,9 @@ function createUserCard(user) {
                     ${avatar}
                 </div>
                 <div style="flex: 1;">
-                    <div style="font-weight: 600; font-size: 16px;">${user.username}</div>
-                    <div style="font-size: 14px; color: var(--text-secondary);">${user.email}</div>
-                    ${user.bio ? `<div style="font-size: 14px; margin-top: 4px;">${user.bio}</div>` : ''}
+                    <div style="font-weight: 600; font-size: 16px;">${escapeHtml(user.username)}</div>
+                    <div style="font-size: 14px; color: var(--text-secondary);">@${escapeHtml(user.username)}</div>
+                    ${user.bio ? `<div style="font-size: 14px; margin-top: 4px;">${escapeHtml(user.bio)}</div>` : ''}
                 </div>
             </div>
         </div>
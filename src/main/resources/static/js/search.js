@@ -155,14 +155,13 @@ function createPostHTML(post) {
 function createUserHTML(user) {
     const avatar = user.username ? user.username.charAt(0).toUpperCase() : '?';
     const safeUsername = escapeHtml(user.username);
-    const safeEmail = escapeHtml(user.email);
 
     return `
         <div class="card user-result-card" style="display: flex; align-items: center; padding: 15px; gap: 15px;">
             <div class="user-avatar" style="width: 50px; height: 50px; font-size: 1.2rem;">${avatar}</div>
             <div class="user-result-info" style="flex: 1;">
                 <div class="user-result-name" style="font-weight: bold;">${safeUsername}</div>
-                <div class="user-result-handle" style="color: var(--text-secondary); font-size: 0.9rem;">${safeEmail}</div>
+                <div class="user-result-handle" style="color: var(--text-secondary); font-size: 0.9rem;">@${safeUsername}</div>
             </div>
             <button class="btn btn-secondary" style="padding: 6px 16px; font-size: 0.9rem;">View Profile</button>
         </div>
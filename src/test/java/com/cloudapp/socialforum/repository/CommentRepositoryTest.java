@@ -0,0 +1,151 @@
+package com.cloudapp.socialforum.repository;
+
+import com.cloudapp.socialforum.dto.CommentDTO;
+import com.cloudapp.socialforum.model.Comment;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.sql.init.mode=never"
+})
+class CommentRepositoryTest {
+
+    private static final int TOP_LEVEL = 60;
+    private static final int REPLIES = 3;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Post post;
+    private Comment thread;
+
+    @BeforeEach
+    void seed() {
+        User user = new User();
+        user.setUsername("commenter");
+        user.setEmail("commenter@example.com");
+        user.setPassword("secret");
+        userRepository.save(user);
+
+        post = new Post();
+        post.setContent("busy post");
+        post.setUser(user);
+        postRepository.save(post);
+
+        for (int i = 0; i < TOP_LEVEL; i++) {
+            Comment comment = commentRepository.save(newComment(user, "comment " + i, null));
+            if (i == 0) {
+                thread = comment;
+            }
+        }
+        for (int i = 0; i < REPLIES; i++) {
+            commentRepository.save(newComment(user, "reply " + i, thread.getId()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void cursorWalkCoversTopLevelCommentsOneStatementPerPage() {
+        Set<Long> seen = new HashSet<>();
+        Slice<CommentDTO> page = commentRepository.findTopLevelFirstPage(post.getId(), PageRequest.of(0, 25));
+        int pages = 1;
+        collect(page, seen);
+        while (page.hasNext()) {
+            CommentDTO last = page.getContent().get(page.getContent().size() - 1);
+            page = commentRepository.findTopLevelPageAfter(post.getId(), last.getCreatedAt(), last.getId(),
+                    PageRequest.of(0, 25));
+            collect(page, seen);
+            pages++;
+        }
+
+        assertEquals(TOP_LEVEL, seen.size());
+        assertEquals(pages, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void repliesArePagedSeparatelyWithTheirAuthor() {
+        Slice<CommentDTO> replies = commentRepository.findRepliesFirstPage(thread.getId(), PageRequest.of(0, 2));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(2, replies.getContent().size());
+        assertTrue(replies.hasNext());
+        replies.getContent().forEach(reply -> {
+            assertEquals(thread.getId(), reply.getParentId());
+            assertEquals("commenter", reply.getUser().getUsername());
+        });
+    }
+
+    @Test
+    void latestTopLevelCommentsForManyPostsComeFromOneWindowedQuery() {
+        Post quiet = new Post();
+        quiet.setContent("quiet post");
+        quiet.setUser(userRepository.findAll().get(0));
+        postRepository.save(quiet);
+        entityManager.flush();
+        statistics.clear();
+
+        List<Object[]> rows = commentRepository.findLatestTopLevelRows(List.of(post.getId(), quiet.getId()), 2);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(2, rows.size());
+        assertEquals("comment " + (TOP_LEVEL - 1), rows.get(0)[3]);
+        assertEquals("comment " + (TOP_LEVEL - 2), rows.get(1)[3]);
+        rows.forEach(row -> {
+            assertEquals(post.getId(), ((Number) row[1]).longValue());
+            assertEquals("commenter", row[7]);
+        });
+    }
+
+    private void collect(Slice<CommentDTO> page, Set<Long> seen) {
+        page.getContent().forEach(dto -> {
+            assertFalse(dto.getContent().startsWith("reply"));
+            assertTrue(seen.add(dto.getId()), "comment returned twice: " + dto.getId());
+        });
+    }
+
+    private Comment newComment(User user, String content, Long parentId) {
+        Comment comment = new Comment();
+        comment.setContent(content);
+        comment.setPost(post);
+        comment.setUser(user);
+        comment.setParentId(parentId);
+        return comment;
+    }
+}
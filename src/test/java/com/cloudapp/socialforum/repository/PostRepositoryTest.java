@@ -0,0 +1,115 @@
+package com.cloudapp.socialforum.repository;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.sql.init.mode=never"
+})
+class PostRepositoryTest {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        for (int u = 0; u < 3; u++) {
+            User user = new User();
+            user.setUsername("author" + u);
+            user.setEmail("author" + u + "@example.com");
+            user.setPassword("secret");
+            userRepository.save(user);
+
+            for (int i = 0; i < 20; i++) {
+                Post post = new Post();
+                post.setContent("post " + i + " by author" + u);
+                post.setUser(user);
+                postRepository.save(post);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void feedPageIsOneStatementRegardlessOfPageSize() {
+        for (int size : new int[] {5, 50}) {
+            statistics.clear();
+
+            Slice<PostDTO> page = postRepository.findFeedFirstPage(PageRequest.of(0, size));
+
+            assertEquals(size, page.getContent().size());
+            page.getContent().forEach(dto -> assertTrue(dto.getUser().getUsername().startsWith("author")));
+            assertEquals(1, statistics.getPrepareStatementCount(), "page size " + size);
+        }
+    }
+
+    @Test
+    void cursorPagesWalkTheWholeFeedWithoutOverlap() {
+        Slice<PostDTO> page = postRepository.findFeedFirstPage(PageRequest.of(0, 25));
+        List<PostDTO> first = page.getContent();
+        PostDTO last = first.get(first.size() - 1);
+
+        statistics.clear();
+        Slice<PostDTO> next = postRepository.findFeedPageAfter(last.getCreatedAt(), last.getId(), PageRequest.of(0, 50));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(35, next.getContent().size());
+        assertFalse(next.hasNext());
+        next.getContent().forEach(dto -> assertTrue(dto.getId() < last.getId()
+                || dto.getCreatedAt().isBefore(last.getCreatedAt())));
+    }
+
+    @Test
+    @DirtiesContext // SET REFERENTIAL_INTEGRITY commits in H2, so the seeded rows outlive this test
+    void orphanedAuthorIsMappedInsideTheQuery() {
+        entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY FALSE").executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO posts (\"content\", user_id, created_at, share_count, like_count, comment_count) " +
+                "VALUES ('orphan', 9999, CURRENT_TIMESTAMP, 0, 0, 0)").executeUpdate();
+        entityManager.createNativeQuery("SET REFERENTIAL_INTEGRITY TRUE").executeUpdate();
+        Long orphanId = ((Number) entityManager.createNativeQuery(
+                "SELECT id FROM posts WHERE user_id = 9999").getSingleResult()).longValue();
+
+        statistics.clear();
+        PostDTO dto = postRepository.findPostDTOById(orphanId).orElseThrow();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals("Unknown User", dto.getUser().getUsername());
+        assertEquals(-1L, dto.getUser().getId());
+    }
+}
@@ -0,0 +1,202 @@
+package com.cloudapp.socialforum.security;
+
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.UserRepository;
+import com.cloudapp.socialforum.service.UserSnapshotCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Token verification, the verified-token cache, and the token version check behind it
+ * The timing comparison with the old three-parse path runs only with -Dbenchmark=true.
+ */
+class JwtTokenProviderTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProviderTest.class);
+
+    private static final String SECRET = "testSecretKeyThatIsLongEnoughForHs256Signing";
+    private static final int REQUESTS = 20_000;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void parsesOnceAndRejectsForgedOrExpiredTokens() {
+        JwtTokenProvider provider = newProvider(SECRET, 60_000);
+        String token = provider.generateToken(user("USER", 3L));
+
+        JwtClaims claims = provider.parseToken(token).orElseThrow();
+        assertEquals(7L, claims.userId());
+        assertEquals("alice", claims.username());
+        assertEquals("USER", claims.role());
+        assertEquals(3L, claims.tokenVersion());
+        assertEquals(claims, provider.parseToken(token).orElseThrow());
+
+        String forged = newProvider("anotherSecretKeyThatIsLongEnoughForHs256", 60_000).generateToken(user("ADMIN", 3L));
+        assertEquals(Optional.empty(), provider.parseToken(forged));
+        assertEquals(Optional.empty(), provider.parseToken(token.substring(0, token.length() - 2) + "xx"));
+        assertEquals(Optional.empty(), provider.parseToken("not-a-token"));
+
+        String expired = newProvider(SECRET, -1_000).generateToken(user("USER", 3L));
+        assertEquals(Optional.empty(), provider.parseToken(expired));
+    }
+
+    @Test
+    void repeatedTokenIsServedFromTheCacheWithoutParsing() {
+        JwtTokenProvider provider = newProvider(SECRET, 60_000);
+        JwtParser parser = spy((JwtParser) ReflectionTestUtils.getField(provider, "parser"));
+        ReflectionTestUtils.setField(provider, "parser", parser);
+        String token = provider.generateToken(user("USER", 3L));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(provider.parseToken(token).isPresent());
+        }
+
+        verify(parser, times(1)).parseSignedClaims(anyString());
+    }
+
+    @Test
+    void expiredTokenIsNeverServedFromTheCache() {
+        Instant now = Instant.now();
+        JwtTokenProvider provider = newProvider(SECRET, 60_000);
+        provider.clock = Clock.fixed(now, ZoneOffset.UTC);
+        String token = provider.generateToken(user("USER", 3L));
+        assertTrue(provider.parseToken(token).isPresent());
+
+        // The cached entry is still within the cache TTL, but the token itself has expired
+        provider.clock = Clock.fixed(now.plus(Duration.ofSeconds(61)), ZoneOffset.UTC);
+        assertEquals(Optional.empty(), provider.parseToken(token));
+        assertEquals(Optional.empty(), provider.parseToken(token));
+    }
+
+    @Test
+    void versionBumpRejectsACachedToken() throws Exception {
+        JwtTokenProvider provider = newProvider(SECRET, 60_000);
+        String token = provider.generateToken(user("USER", 3L));
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user("USER", 3L)));
+        UserSnapshotCache userSnapshotCache = new UserSnapshotCache();
+        ReflectionTestUtils.setField(userSnapshotCache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userSnapshotCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userSnapshotCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(userSnapshotCache, "ttlSeconds", 60L);
+        userSnapshotCache.init();
+
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtTokenProvider", provider);
+        ReflectionTestUtils.setField(filter, "userRepository", userRepository);
+        ReflectionTestUtils.setField(filter, "userSnapshotCache", userSnapshotCache);
+
+        authenticate(filter, token);
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+
+        // A role change bumps the version; the token itself is still cached as verified
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user("ADMIN", 4L)));
+        userSnapshotCache.evict(7L);
+        assertTrue(provider.parseToken(token).isPresent());
+
+        authenticate(filter, token);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkVerificationPerRequest() {
+        JwtTokenProvider provider = newProvider(SECRET, 60_000);
+        String token = provider.generateToken(user("USER", 3L));
+
+        for (int i = 0; i < REQUESTS; i++) {
+            threeParses(token);
+            provider.parseToken(token);
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            threeParses(token);
+        }
+        double beforeMicros = (System.nanoTime() - started) / 1e3 / REQUESTS;
+
+        started = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            provider.parseToken(token);
+        }
+        double afterMicros = (System.nanoTime() - started) / 1e3 / REQUESTS;
+
+        logger.info("Token verification per request: three parses {} us, cached parse {} us",
+                String.format("%.2f", beforeMicros), String.format("%.2f", afterMicros));
+    }
+
+    private void authenticate(JwtAuthenticationFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    /**
+     * What the filter used to do: validate, then read the subject, then the role, deriving the key each time
+     */
+    private String threeParses(String token) {
+        String role = null;
+        for (int i = 0; i < 3; i++) {
+            SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+            Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+            role = claims.get("role", String.class);
+        }
+        return role;
+    }
+
+    private User user(String role, long tokenVersion) {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(role);
+        user.setTokenVersion(tokenVersion);
+        return user;
+    }
+
+    private JwtTokenProvider newProvider(String secret, long expirationMs) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", secret);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(provider, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(provider, "cacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(provider, "meterRegistry", new SimpleMeterRegistry());
+        provider.init();
+        return provider;
+    }
+}
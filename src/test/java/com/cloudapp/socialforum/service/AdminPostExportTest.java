@@ -0,0 +1,120 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.controller.AdminController;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * GET /api/admin/posts streamed over more than one JDBC fetch batch (the query fetches 500 rows at a time)
+ * Rows are committed first, since the body is written on an async thread outside the test transaction.
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:export;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext
+class AdminPostExportTest extends ServiceJpaTest {
+
+    private static final int POSTS = 1203;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+    private Set<Long> postIds;
+
+    @BeforeEach
+    void setUp() {
+        AdminController controller = new AdminController();
+        ReflectionTestUtils.setField(controller, "postService", postService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        postRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+        User author = new User();
+        author.setUsername("exporter");
+        author.setEmail("exporter@example.com");
+        author.setPassword("secret");
+        author = userRepository.save(author);
+
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            Post post = new Post();
+            post.setContent("post " + i);
+            post.setUser(author);
+            post.setMediaType("text");
+            posts.add(post);
+        }
+        postIds = new HashSet<>();
+        postRepository.saveAll(posts).forEach(post -> postIds.add(post.getId()));
+    }
+
+    @Test
+    void streamsEveryRowAsWellFormedJson() throws Exception {
+        JsonNode body = export("/api/admin/posts");
+
+        assertEquals(POSTS, body.get("posts").size());
+        assertEquals(postIds, idsOf(body));
+        assertTrue(body.get("nextCursor").isNull());
+    }
+
+    @Test
+    void limitedPagesChainThroughTheCursor() throws Exception {
+        JsonNode first = export("/api/admin/posts?limit=1000");
+        JsonNode second = export("/api/admin/posts?limit=1000&after=" + first.get("nextCursor").asText());
+
+        assertEquals(1000, first.get("posts").size());
+        assertEquals(POSTS - 1000, second.get("posts").size());
+        assertTrue(second.get("nextCursor").isNull());
+        Set<Long> ids = idsOf(first);
+        ids.addAll(idsOf(second));
+        assertEquals(postIds, ids);
+    }
+
+    private JsonNode export(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+        // readTree fails on truncated or otherwise malformed output
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private Set<Long> idsOf(JsonNode body) {
+        Set<Long> ids = new HashSet<>();
+        body.get("posts").forEach(post -> ids.add(post.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,110 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.CommentDTO;
+import com.cloudapp.socialforum.dto.CommentImportItem;
+import com.cloudapp.socialforum.model.Comment;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.CommentRepository;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parent validation in the bulk comment import
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:imports;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class CommentImportTest extends ServiceJpaTest {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+    private Post post;
+    private Post otherPost;
+    private Long topLevelId;
+    private Long replyId;
+
+    @BeforeEach
+    void seed() {
+        user = new User();
+        user.setUsername("importer");
+        user.setEmail("importer@example.com");
+        user.setPassword("secret");
+        userRepository.save(user);
+
+        post = newPost("thread post");
+        otherPost = newPost("another post");
+
+        CommentDTO topLevel = commentService.createComment("top", post.getId(), user.getId(), null);
+        CommentDTO reply = commentService.createComment("reply", post.getId(), user.getId(), topLevel.getId());
+        topLevelId = topLevel.getId();
+        replyId = reply.getId();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void replyToAReplyIsAttachedToTheThreadRoot() {
+        assertEquals(1, commentService.importComments(List.of(item(post, replyId))));
+        entityManager.flush();
+        entityManager.clear();
+
+        Comment imported = commentRepository.findAll().stream()
+                .filter(c -> "imported".equals(c.getContent()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(topLevelId, imported.getParentId());
+        assertEquals(2, commentRepository.findById(topLevelId).orElseThrow().getReplyCount());
+        assertEquals(0, commentRepository.findById(replyId).orElseThrow().getReplyCount());
+    }
+
+    @Test
+    void unknownParentFailsTheImport() {
+        assertThrows(IllegalArgumentException.class,
+                () -> commentService.importComments(List.of(item(post, null), item(post, 999_999L))));
+    }
+
+    @Test
+    void parentFromAnotherPostFailsTheImport() {
+        assertThrows(IllegalArgumentException.class,
+                () -> commentService.importComments(List.of(item(otherPost, topLevelId))));
+    }
+
+    private Post newPost(String content) {
+        Post created = new Post();
+        created.setContent(content);
+        created.setUser(user);
+        return postRepository.save(created);
+    }
+
+    private CommentImportItem item(Post target, Long parentId) {
+        CommentImportItem item = new CommentImportItem();
+        item.setContent("imported");
+        item.setPostId(target.getId());
+        item.setUserId(user.getId());
+        item.setParentId(parentId);
+        return item;
+    }
+}
@@ -0,0 +1,136 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.controller.CommentController;
+import com.cloudapp.socialforum.controller.PostController;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional GETs on a post and its comments: 200 with an ETag, 304 when it still matches,
+ * and a new ETag once a write changes the post
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:etags;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class ConditionalGetTest extends ServiceJpaTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+    private User user;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        CommentController commentController = new CommentController();
+        ReflectionTestUtils.setField(commentController, "commentService", commentService);
+        ReflectionTestUtils.setField(commentController, "postService", postService);
+        PostController postController = new PostController();
+        ReflectionTestUtils.setField(postController, "postService", postService);
+        mockMvc = MockMvcBuilders.standaloneSetup(commentController, postController).build();
+
+        user = new User();
+        user.setUsername("author");
+        user.setEmail("author@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+        post = new Post();
+        post.setContent("conditional");
+        post.setUser(user);
+        post.setMediaType("text");
+        post = postRepository.save(post);
+        for (int i = 0; i < 3; i++) {
+            commentService.createComment("comment " + i, post.getId(), user.getId(), null);
+        }
+    }
+
+    @Test
+    void commentsAreNotModifiedUntilACommentIsWritten() throws Exception {
+        String comments = "/api/comments/post/" + post.getId();
+        String etag = etagOf(comments);
+
+        mockMvc.perform(get(comments).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        commentService.createComment("one more", post.getId(), user.getId(), null);
+
+        mockMvc.perform(get(comments).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertNotEquals(etag, etagOf(comments));
+    }
+
+    @Test
+    void commentsETagDependsOnCursorAndLimit() throws Exception {
+        String comments = "/api/comments/post/" + post.getId();
+        MvcResult firstPage = mockMvc.perform(get(comments).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = firstPage.getResponse().getHeader(HttpHeaders.ETAG);
+        String cursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        // Same post revision, different page: the first page's ETag must not answer for it
+        mockMvc.perform(get(comments).param("limit", "2").param("after", cursor)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(comments).param("limit", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(comments).param("limit", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void postIsNotModifiedUntilItIsLiked() throws Exception {
+        String path = "/api/posts/" + post.getId();
+        String etag = etagOf(path);
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        likeService.like(post.getId(), user.getId());
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+        assertNotEquals(etag, etagOf(path));
+    }
+
+    private String etagOf(String path) throws Exception {
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
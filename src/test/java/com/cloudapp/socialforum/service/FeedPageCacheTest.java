@@ -0,0 +1,63 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.dto.PostDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FeedPageCacheTest {
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void patchesWaitForCommitAndSwapInCopies() {
+        FeedPageCache cache = newCache();
+        PostDTO post = new PostDTO();
+        post.setId(1L);
+        post.setLikesCount(3);
+        CursorPage<PostDTO> loaded = new CursorPage<>(List.of(post), null, false);
+        assertSame(loaded, cache.getCursorPage(null, 20, () -> loaded));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.patchLikeCount(1L, 4);
+        assertSame(loaded, cache.getCursorPage(null, 20, () -> null));
+
+        // Rolled back: nothing changes
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(3, cache.getCursorPage(null, 20, () -> null).getItems().get(0).getLikesCount());
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.patchLikeCount(1L, 4);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        PostDTO patched = cache.getCursorPage(null, 20, () -> null).getItems().get(0);
+        assertEquals(4, patched.getLikesCount());
+        assertNotSame(post, patched);
+        assertEquals(3, post.getLikesCount());
+    }
+
+    private FeedPageCache newCache() {
+        FeedPageCache cache = new FeedPageCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxWeightBytes", 1_000_000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 30L);
+        cache.init();
+        return cache;
+    }
+}
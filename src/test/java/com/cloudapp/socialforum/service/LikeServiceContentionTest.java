@@ -0,0 +1,183 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.LikeRepository;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 1,000 threads liking one post at once, against H2 in MySQL mode so INSERT IGNORE runs as in production
+ */
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:likes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.hikari.maximum-pool-size=20",
+    "logging.level.com.cloudapp.socialforum=INFO"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext
+class LikeServiceContentionTest extends ServiceJpaTest {
+
+    private static final int THREADS = 1000;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private LikeWriteBehindBuffer likeWriteBehindBuffer;
+
+    @Autowired
+    private LikedPostIndex likedPostIndex;
+
+    private Post post;
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        likeRepository.deleteAllInBatch();
+        postRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        users = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            User user = new User();
+            user.setUsername("liker" + i);
+            user.setEmail("liker" + i + "@example.com");
+            user.setPassword("secret");
+            users.add(user);
+        }
+        users = userRepository.saveAll(users);
+
+        post = new Post();
+        post.setContent("hot post");
+        post.setUser(users.get(0));
+        post.setMediaType("text");
+        post = postRepository.save(post);
+    }
+
+    @Test
+    void thousandDistinctUsersLikingOnePostAreAllCounted() throws Exception {
+        runConcurrently(i -> likeService.like(post.getId(), users.get(i).getId()));
+
+        assertEquals(THREADS, likeRepository.countByPostId(post.getId()));
+        assertEquals(THREADS, likeService.getLikeCount(post.getId()));
+    }
+
+    @Test
+    void repeatedLikesBySameUserAreIdempotent() throws Exception {
+        Long userId = users.get(1).getId();
+        AtomicInteger changed = new AtomicInteger();
+
+        runConcurrently(i -> {
+            if (Boolean.TRUE.equals(likeService.like(post.getId(), userId).get("changed"))) {
+                changed.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, changed.get());
+        assertEquals(1, likeService.getLikeCount(post.getId()));
+
+        Map<String, Object> first = likeService.unlike(post.getId(), userId);
+        Map<String, Object> second = likeService.unlike(post.getId(), userId);
+        assertEquals(true, first.get("changed"));
+        assertEquals(false, second.get("changed"));
+        assertEquals(0L, second.get("likeCount"));
+    }
+
+    @Test
+    void writeBehindShowsPendingLikesAndFlushesThemInOneBatch() throws Exception {
+        ReflectionTestUtils.setField(likeWriteBehindBuffer, "enabled", true);
+        try {
+            runConcurrently(i -> likeService.like(post.getId(), users.get(i).getId()));
+            Long userId = users.get(2).getId();
+            likeService.unlike(post.getId(), userId);
+            likeService.like(post.getId(), userId);
+
+            assertEquals(0, likeRepository.countByPostId(post.getId()));
+            assertEquals(THREADS, likeService.getLikeCount(post.getId()));
+            assertTrue(likeService.isLikedByUser(post.getId(), userId));
+
+            while (likeWriteBehindBuffer.flush() > 0) {
+                // drain
+            }
+
+            assertEquals(THREADS, likeRepository.countByPostId(post.getId()));
+            assertEquals(0, likeWriteBehindBuffer.getPendingDelta(post.getId()));
+            assertEquals(THREADS, likeService.getLikeCount(post.getId()));
+        } finally {
+            ReflectionTestUtils.setField(likeWriteBehindBuffer, "enabled", false);
+        }
+    }
+
+    @Test
+    void bitmapLoadedBeforeTheFlushPicksUpTheQueuedLike() {
+        ReflectionTestUtils.setField(likeWriteBehindBuffer, "enabled", true);
+        try {
+            Long userId = users.get(3).getId();
+            likeService.like(post.getId(), userId);
+            likedPostIndex.evictUser(userId);
+
+            // Reloads the bitmap from the database, which does not have the like yet
+            assertFalse(likedPostIndex.isLiked(userId, post.getId()));
+
+            likeWriteBehindBuffer.flush();
+            assertTrue(likedPostIndex.isLiked(userId, post.getId()));
+        } finally {
+            ReflectionTestUtils.setField(likeWriteBehindBuffer, "enabled", false);
+        }
+    }
+
+    private long runConcurrently(java.util.function.IntConsumer action) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    action.accept(index);
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(120, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+        assertTrue(errors.isEmpty(), () -> "Errors under contention: " + errors.peek());
+        return elapsed;
+    }
+}
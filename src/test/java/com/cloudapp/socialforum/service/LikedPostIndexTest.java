@@ -0,0 +1,123 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.repository.LikeRepository;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LikedPostIndexTest {
+
+    private final LikeRepository likeRepository = mock(LikeRepository.class);
+    private final AtomicLong nanos = new AtomicLong();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadsEachUserOnceAndAnswersFromTheBitmap() {
+        when(likeRepository.findPostIdsLikedByUser(7L)).thenReturn(List.of(1L, 3L));
+        LikedPostIndex index = newIndex(true);
+
+        assertTrue(index.isLiked(7L, 1L));
+        assertFalse(index.isLiked(7L, 2L));
+        assertEquals(Set.of(1L, 3L), index.filterLiked(7L, List.of(1L, 2L, 3L)));
+        verify(likeRepository, times(1)).findPostIdsLikedByUser(7L);
+    }
+
+    @Test
+    void changesApplyOnCommitAndAreDroppedOnRollback() {
+        when(likeRepository.findPostIdsLikedByUser(7L)).thenReturn(List.of(1L));
+        LikedPostIndex index = newIndex(true);
+        index.isLiked(7L, 1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.recordChange(7L, 2L, true);
+        assertFalse(index.isLiked(7L, 2L));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        assertTrue(index.isLiked(7L, 2L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.recordChange(7L, 1L, false);
+        // Rolled back: the synchronizations are discarded without afterCommit
+        TransactionSynchronizationManager.clearSynchronization();
+        assertTrue(index.isLiked(7L, 1L));
+        verify(likeRepository, times(1)).findPostIdsLikedByUser(7L);
+    }
+
+    @Test
+    void evictedAndExpiredBitmapsReloadFromTheDatabase() {
+        when(likeRepository.findPostIdsLikedByUser(7L)).thenReturn(List.of(1L));
+        LikedPostIndex index = newIndex(true);
+        index.isLiked(7L, 1L);
+
+        index.evictUser(7L);
+        index.isLiked(7L, 1L);
+        verify(likeRepository, times(2)).findPostIdsLikedByUser(7L);
+
+        // A like made on another instance only shows up once the bitmap expires; local
+        // changes in between do not extend its lifetime
+        when(likeRepository.findPostIdsLikedByUser(7L)).thenReturn(List.of(1L, 5L));
+        nanos.addAndGet(Duration.ofSeconds(40).toNanos());
+        index.recordChange(7L, 2L, true);
+        assertFalse(index.isLiked(7L, 5L));
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(index.isLiked(7L, 5L));
+        verify(likeRepository, times(3)).findPostIdsLikedByUser(7L);
+    }
+
+    @Test
+    void fallsBackToTheDatabaseWhenTheIndexCannotAnswer() {
+        LikedPostIndex index = newIndex(true);
+        assertTrue(index.canAnswer(List.of(1L, (long) Integer.MAX_VALUE)));
+        assertFalse(index.canAnswer(List.of(1L, Integer.MAX_VALUE + 1L)));
+        assertFalse(newIndex(false).canAnswer(List.of(1L)));
+
+        LikeService likeService = new LikeService();
+        ReflectionTestUtils.setField(likeService, "likeRepository", likeRepository);
+        ReflectionTestUtils.setField(likeService, "likedPostIndex", index);
+        LikeWriteBehindBuffer buffer = mock(LikeWriteBehindBuffer.class);
+        when(buffer.getPendingState(anyLong(), anyLong())).thenReturn(null);
+        ReflectionTestUtils.setField(likeService, "likeWriteBehindBuffer", buffer);
+        List<Long> postIds = List.of(1L, Integer.MAX_VALUE + 1L);
+        when(likeRepository.findLikedPostIds(7L, postIds)).thenReturn(List.of(Integer.MAX_VALUE + 1L));
+
+        assertEquals(Set.of(Integer.MAX_VALUE + 1L), likeService.getLikedPostIds(postIds, 7L));
+        verify(likeRepository, never()).findPostIdsLikedByUser(7L);
+    }
+
+    private LikedPostIndex newIndex(boolean enabled) {
+        LikedPostIndex index = new LikedPostIndex();
+        ReflectionTestUtils.setField(index, "likeRepository", likeRepository);
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", enabled);
+        ReflectionTestUtils.setField(index, "maxWeightBytes", 1L << 20);
+        ReflectionTestUtils.setField(index, "ttlSeconds", 60L);
+        index.ticker = (Ticker) nanos::get;
+        index.init();
+        return index;
+    }
+}
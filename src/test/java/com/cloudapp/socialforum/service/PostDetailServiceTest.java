@@ -0,0 +1,131 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.CommentDTO;
+import com.cloudapp.socialforum.dto.CursorPage;
+import com.cloudapp.socialforum.dto.PostDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Partial post detail responses when one part misses the deadline or the pool turns it away
+ */
+class PostDetailServiceTest {
+
+    private final PostService postService = mock(PostService.class);
+    private final CommentService commentService = mock(CommentService.class);
+    private final LikeService likeService = mock(LikeService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private PostDetailService postDetailService;
+
+    @BeforeEach
+    void setUp() {
+        postDetailService = new PostDetailService();
+        ReflectionTestUtils.setField(postDetailService, "postService", postService);
+        ReflectionTestUtils.setField(postDetailService, "commentService", commentService);
+        ReflectionTestUtils.setField(postDetailService, "likeService", likeService);
+        FanOut fanOut = new FanOut();
+        ReflectionTestUtils.setField(fanOut, "fanOutExecutor", executor);
+        ReflectionTestUtils.setField(fanOut, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(postDetailService, "fanOut", fanOut);
+        ReflectionTestUtils.setField(postDetailService, "deadlineMs", 150L);
+
+        PostDTO post = new PostDTO();
+        post.setId(7L);
+        CommentDTO comment = new CommentDTO();
+        comment.setId(11L);
+        when(postService.getPostDTOById(7L)).thenReturn(Optional.of(post));
+        when(commentService.getComments(7L, null, 20)).thenReturn(new CursorPage<>(List.of(comment), null, false));
+        when(likeService.getLikeCount(7L)).thenReturn(3L);
+        when(likeService.isLikedByUser(7L, 5L)).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void partThatMissesTheDeadlineIsListedAsMissing() {
+        executor.setCorePoolSize(4);
+        executor.initialize();
+        when(likeService.getLikeCount(7L)).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return 3L;
+        });
+
+        Map<String, Object> detail = postDetailService.getPostDetail(7L, 5L, 20).orElseThrow();
+
+        assertEquals(7L, ((PostDTO) detail.get("post")).getId());
+        assertEquals(1, ((List<?>) detail.get("comments")).size());
+        assertEquals(true, detail.get("likedByMe"));
+        assertFalse(detail.containsKey("likeCount"));
+        assertEquals(true, detail.get("partial"));
+        assertEquals(List.of("likeCount"), detail.get("missing"));
+        Counter timeouts = meterRegistry.find("fanout.timeouts").tag("call", "postDetail").tag("part", "likeCount").counter();
+        assertEquals(1.0, timeouts.count());
+    }
+
+    @Test
+    void partsThePoolRejectsAreListedAsMissing() {
+        // Two threads and no queue: post and comments hold both threads until the others are turned away
+        CountDownLatch rejected = new CountDownLatch(2);
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.countDown();
+            throw new RejectedExecutionException("fan-out pool saturated");
+        });
+        executor.initialize();
+        PostDTO post = new PostDTO();
+        post.setId(7L);
+        when(postService.getPostDTOById(7L)).thenAnswer(invocation -> {
+            rejected.await(1, TimeUnit.SECONDS);
+            return Optional.of(post);
+        });
+        when(commentService.getComments(7L, null, 20)).thenAnswer(invocation -> {
+            rejected.await(1, TimeUnit.SECONDS);
+            return new CursorPage<CommentDTO>(List.of(), null, false);
+        });
+
+        Map<String, Object> detail = postDetailService.getPostDetail(7L, 5L, 20).orElseThrow();
+
+        assertEquals(0, rejected.getCount());
+        assertEquals(post, detail.get("post"));
+        assertTrue(detail.containsKey("comments"));
+        assertEquals(true, detail.get("partial"));
+        assertEquals(List.of("likeCount", "likedByMe"), detail.get("missing"));
+    }
+
+    @Test
+    void completeWhenEveryPartAnswers() {
+        executor.setCorePoolSize(4);
+        executor.initialize();
+
+        Map<String, Object> detail = postDetailService.getPostDetail(7L, 5L, 20).orElseThrow();
+
+        assertEquals(3L, detail.get("likeCount"));
+        assertEquals(true, detail.get("likedByMe"));
+        assertEquals(false, detail.get("partial"));
+        assertEquals(List.of(), detail.get("missing"));
+    }
+}
@@ -0,0 +1,202 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostText;
+import com.cloudapp.socialforum.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ranking behaviour of PostSearchIndex plus a timing comparison against the LIKE scan
+ * The timing runs only run with -Dbenchmark=true
+ */
+class PostSearchIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchIndexTest.class);
+
+    private static final int VOCABULARY = 20_000;
+    private static final int QUERIES = 200;
+
+    @Test
+    void ranksByRelevanceAndForgetsDeletedPosts() {
+        PostSearchIndex index = newIndex();
+        index.add(1L, "Cloud hosting tips for the weekend");
+        index.add(2L, "cloud cloud cloud! Everything about the CLOUD");
+        index.add(3L, "Weekend hiking photos");
+
+        PostSearchIndex.SearchHits hits = index.search("cloud", 0, 10);
+        assertEquals(List.of(2L, 1L), hits.postIds());
+        assertEquals(2, hits.total());
+
+        assertEquals(List.of(1L), index.search("cloud weekend", 0, 1).postIds());
+        assertEquals(List.of(3L), index.search("cloud weekend", 2, 10).postIds());
+
+        index.remove(2L);
+        assertEquals(List.of(1L), index.search("cloud", 0, 10).postIds());
+        assertEquals(0, index.search("the", 0, 10).total());
+    }
+
+    @Test
+    void pagesPastTheEndAreEmptyAndCompactionShrinksTheIndex() {
+        PostSearchIndex index = newIndex();
+        for (long id = 1; id <= 4_000; id++) {
+            index.add(id, (id % 2 == 0 ? "even" : "odd") + " post number" + id);
+        }
+        PostSearchIndex.SearchHits far = index.search("even", (long) Integer.MAX_VALUE * 100, 100);
+        assertTrue(far.postIds().isEmpty());
+        assertEquals(2_000, far.total());
+
+        for (long id = 1; id <= 3_000; id++) {
+            index.remove(id);
+        }
+        assertTrue(((long[]) ReflectionTestUtils.getField(index, "postIds")).length < 4_000);
+        PostSearchIndex.SearchHits hits = index.search("even", 0, 1_000);
+        assertEquals(500, hits.total());
+        assertEquals(4_000L, hits.postIds().get(0));
+        assertEquals(List.of(3_999L), index.search("number3999", 0, 10).postIds());
+    }
+
+    @Test
+    void fuzzySearchToleratesTypos() {
+        PostSearchIndex index = newIndex();
+        index.add(1L, "Kubernetes deployment notes");
+        index.add(2L, "Deploying on a Friday");
+
+        assertEquals(0, index.search("kubernets", 0, 10).total());
+        assertEquals(List.of(1L), index.searchFuzzy("kubernets deploymnet", 0, 10).postIds());
+    }
+
+    @Test
+    void picksUpPostsWrittenOnOtherInstances() {
+        PostRepository postRepository = mock(PostRepository.class);
+        PostSearchIndex index = newIndex();
+        ReflectionTestUtils.setField(index, "postRepository", postRepository);
+        ReflectionTestUtils.setField(index, "transactionManager", mock(PlatformTransactionManager.class));
+        when(postRepository.streamPostTexts()).thenReturn(Stream.of(text(1L, "cloud notes"), text(2L, "cloud costs")));
+        index.build();
+
+        when(postRepository.findPostTextsInRange(3L, Long.MAX_VALUE)).thenReturn(List.of(text(5L, "cloud migration")));
+        index.refresh();
+        assertEquals(3, index.search("cloud", 0, 10).total());
+
+        // 2 was deleted elsewhere; 4 committed after 5, so the refresh never saw it
+        when(postRepository.streamPostIds()).thenReturn(Stream.of(1L, 4L, 5L));
+        when(postRepository.findPostTextsByIds(List.of(4L))).thenReturn(List.of(text(4L, "cloud budget")));
+        index.reconcile();
+        assertEquals(List.of(1L, 4L, 5L), index.search("cloud", 0, 10).postIds().stream().sorted().toList());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstLikeAt100kPosts() throws Exception {
+        benchmark(100_000);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstLikeAt1mPosts() throws Exception {
+        benchmark(1_000_000);
+    }
+
+    private void benchmark(int posts) throws Exception {
+        Random random = new Random(7);
+        PostSearchIndex index = newIndex();
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:search" + posts, "sa", "")) {
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE posts (id BIGINT PRIMARY KEY, content VARCHAR(2000))");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO posts VALUES (?, ?)")) {
+                for (long id = 1; id <= posts; id++) {
+                    String content = randomPost(random);
+                    index.add(id, content);
+                    insert.setLong(1, id);
+                    insert.setString(2, content);
+                    insert.addBatch();
+                    if (id % 5_000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+
+            String[] queries = new String[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                // Mid-frequency terms, the usual shape of a real query
+                queries[i] = word(50 + random.nextInt(2_000));
+            }
+
+            long likeMatches = 0;
+            long started = System.nanoTime();
+            try (PreparedStatement like = connection.prepareStatement(
+                    "SELECT id FROM posts WHERE LOWER(content) LIKE LOWER(CONCAT('%', ?, '%'))")) {
+                for (String query : queries) {
+                    like.setString(1, query);
+                    try (ResultSet rows = like.executeQuery()) {
+                        while (rows.next()) {
+                            likeMatches++;
+                        }
+                    }
+                }
+            }
+            double likeMillis = (System.nanoTime() - started) / 1e6 / QUERIES;
+
+            for (String query : queries) {
+                index.search(query, 0, 20);
+            }
+            long indexMatches = 0;
+            started = System.nanoTime();
+            for (String query : queries) {
+                indexMatches += index.search(query, 0, 20).total();
+            }
+            double indexMillis = (System.nanoTime() - started) / 1e6 / QUERIES;
+
+            logger.info("Post search at {} posts: LIKE {} ms/query ({} rows), index {} ms/query ({} matches, top 20 ranked)",
+                    posts, String.format("%.2f", likeMillis), likeMatches, String.format("%.3f", indexMillis), indexMatches);
+        }
+    }
+
+    private PostText text(Long id, String content) {
+        return new PostText(id, content, null);
+    }
+
+    private PostSearchIndex newIndex() {
+        PostSearchIndex index = new PostSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxQueryTerms", 16);
+        return index;
+    }
+
+    private String randomPost(Random random) {
+        int words = 10 + random.nextInt(30);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            // Roughly Zipfian: low ranks are far more common
+            int rank = (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+            content.append(word(rank)).append(' ');
+        }
+        return content.toString();
+    }
+
+    private String word(int rank) {
+        return "w" + Integer.toString(rank, 36) + "x";
+    }
+}
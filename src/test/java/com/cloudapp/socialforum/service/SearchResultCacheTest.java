@@ -0,0 +1,89 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.dto.SearchResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache(16 * 1024 * 1024);
+    }
+
+    @Test
+    void repeatedQueriesAreServedFromCacheUntilAMatchingPostIsWritten() {
+        cache.get("Cloud  Hosting", "all", 0, 20, loader(false));
+        cache.get("cloud hosting", "all", 0, 20, loader(false));
+        cache.get("weekend", "all", 0, 20, loader(false));
+        cache.get("ai", "tags", 0, 20, loader(false));
+        assertEquals(3, loads.get());
+
+        cache.invalidateForPost("New #AI post about the cloud");
+        cache.get("cloud hosting", "all", 0, 20, loader(false));
+        cache.get("weekend", "all", 0, 20, loader(false));
+        cache.get("ai", "tags", 0, 20, loader(false));
+        assertEquals(5, loads.get());
+
+        assertEquals(2.0, meterRegistry.get("search.cache.invalidations").counter().count());
+        assertTrue(meterRegistry.get("search.cache.saved.seconds").counter().count() > 0);
+    }
+
+    @Test
+    void partialResponsesAreNotCached() {
+        cache.get("cloud", "all", 0, 20, loader(true));
+        cache.get("cloud", "all", 0, 20, loader(true));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void byteBudgetIsEnforced() {
+        SearchResultCache small = newCache(64 * 1024);
+        for (int i = 0; i < 200; i++) {
+            small.get("query " + i, "all", 0, 20, loader(false));
+        }
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> responses = (Cache<Object, Object>) ReflectionTestUtils.getField(small, "responses");
+        responses.cleanUp();
+        long weight = responses.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+        assertTrue(weight <= 64 * 1024, "weighted size " + weight);
+        assertTrue(responses.estimatedSize() < 200);
+    }
+
+    private SearchResultCache newCache(long maxWeightBytes) {
+        SearchResultCache created = new SearchResultCache();
+        ReflectionTestUtils.setField(created, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(created, "enabled", true);
+        ReflectionTestUtils.setField(created, "maxWeightBytes", maxWeightBytes);
+        ReflectionTestUtils.setField(created, "ttlSeconds", 60L);
+        created.init();
+        return created;
+    }
+
+    private Supplier<SearchResponse> loader(boolean partial) {
+        return () -> {
+            loads.incrementAndGet();
+            SearchResponse response = new SearchResponse();
+            PostDTO post = new PostDTO();
+            post.setContent("x".repeat(500));
+            response.setPosts(List.of(post, post));
+            response.setPartial(partial);
+            return response;
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.dto.SearchResponse;
+import com.cloudapp.socialforum.dto.UserSearchResult;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deadline and partial-result behaviour of type=all search
+ */
+class SearchServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PostService postService = mock(PostService.class);
+    private final PostSearchIndex postSearchIndex = mock(PostSearchIndex.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private SearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        executor.setCorePoolSize(4);
+        executor.initialize();
+        searchService = new SearchService();
+        ReflectionTestUtils.setField(searchService, "postRepository", mock(PostRepository.class));
+        ReflectionTestUtils.setField(searchService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(searchService, "postService", postService);
+        ReflectionTestUtils.setField(searchService, "postSearchIndex", postSearchIndex);
+        FanOut fanOut = new FanOut();
+        ReflectionTestUtils.setField(fanOut, "fanOutExecutor", executor);
+        ReflectionTestUtils.setField(fanOut, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(searchService, "fanOut", fanOut);
+        ReflectionTestUtils.setField(searchService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(searchService, "deadlineMs", 150L);
+        ReflectionTestUtils.setField(searchService, "maxUserResults", 10);
+        SearchResultCache cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "enabled", false);
+        ReflectionTestUtils.setField(searchService, "searchResultCache", cache);
+
+        PostDTO post = new PostDTO();
+        post.setId(7L);
+        when(postSearchIndex.isReady()).thenReturn(true);
+        when(postSearchIndex.search("cloud", 0, 20)).thenReturn(new PostSearchIndex.SearchHits(List.of(7L), 1));
+        when(postService.getPostsDTOByIds(anyList())).thenReturn(List.of(post));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void slowSourceIsLeftOutAndMarkedPartial() {
+        when(userRepository.searchUsers(anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return new SliceImpl<UserSearchResult>(List.of());
+        });
+
+        long started = System.nanoTime();
+        SearchResponse response = searchService.search("cloud", "all", 0, 20);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(response.isPartial());
+        assertEquals(List.of("users"), response.getMissing());
+        assertEquals(1, response.getPosts().size());
+        assertEquals(1, response.getTotalPosts());
+        assertTrue(elapsedMs < 800, "waited " + elapsedMs + " ms");
+        Timer posts = meterRegistry.find("search.source.latency").tag("source", "posts").timer();
+        assertEquals(1, posts.count());
+    }
+
+    @Test
+    void completeWhenAllSourcesAnswerAndUsersAreCapped() {
+        when(userRepository.searchUsers(eq("cloud"), eq(PageRequest.of(0, 10))))
+                .thenReturn(new SliceImpl<>(List.of(new UserSearchResult(1L, "cloudy", null, null, null, "USER"))));
+
+        SearchResponse response = searchService.search(" cloud ", "all", 0, 20);
+
+        assertFalse(response.isPartial());
+        assertEquals(2, response.getCount());
+    }
+
+    @Test
+    void failsWhenEverySourceIsMissing() {
+        when(postSearchIndex.search(anyString(), anyLong(), anyInt())).thenThrow(new IllegalStateException("down"));
+        when(userRepository.searchUsers(anyString(), any())).thenThrow(new IllegalStateException("down"));
+
+        assertThrows(IllegalStateException.class, () -> searchService.search("cloud", "all", 0, 20));
+    }
+}
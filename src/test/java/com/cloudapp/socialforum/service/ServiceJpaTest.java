@@ -0,0 +1,60 @@
+package com.cloudapp.socialforum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Base for service tests against H2 in MySQL mode, so INSERT IGNORE and friends run as in production
+ * Wires the write-path services with their caches and indexes; S3 and password hashing are mocked.
+ * Subclasses pick their own database with {@code spring.datasource.url} in a @TestPropertySource.
+ */
+@DataJpaTest(properties = {
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false",
+    "spring.sql.init.mode=never",
+    "logging.level.org.hibernate.SQL=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PostService.class, CommentService.class, LikeService.class, UserService.class,
+        FeedPageCache.class, TrendingService.class, ShareCounterBuffer.class, SharedPostCache.class,
+        LikeWriteBehindBuffer.class, LikedPostIndex.class, PostSearchIndex.class, TagService.class,
+        UsernamePrefixIndex.class, SearchResultCache.class, UserSnapshotCache.class, ServiceJpaTest.Config.class})
+abstract class ServiceJpaTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /**
+         * Configured like Spring Boot's, so java.time values serialize as ISO strings
+         */
+        @Bean
+        ObjectMapper objectMapper() {
+            return Jackson2ObjectMapperBuilder.json()
+                    .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .build();
+        }
+    }
+
+    @MockBean
+    protected S3Service s3Service;
+
+    @MockBean
+    protected PasswordEncoder passwordEncoder;
+}
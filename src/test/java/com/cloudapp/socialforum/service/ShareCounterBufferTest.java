@@ -0,0 +1,126 @@
+package com.cloudapp.socialforum.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lossless concurrent share counting; the throughput comparison against the old read-modify-write
+ * path only runs with -Dbenchmark=true
+ */
+class ShareCounterBufferTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShareCounterBufferTest.class);
+
+    private static final int THREADS = 8;
+    private static final int SHARES_PER_THREAD = 50_000;
+    private static final long[] POST_IDS = {1L, 2L, 3L, 4L};
+
+    @Test
+    void concurrentSharesAreNeverLost() throws Exception {
+        Map<Long, Long> persisted = new ConcurrentHashMap<>();
+        runBuffered(persisted);
+
+        long expectedPerPost = (long) THREADS * SHARES_PER_THREAD / POST_IDS.length;
+        for (long postId : POST_IDS) {
+            assertEquals(expectedPerPost, persisted.get(postId));
+        }
+    }
+
+    /**
+     * The previous findById/setShareCount/save path, modelled as an unsynchronized
+     * read-modify-write on a shared row, against the buffered counter
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstReadModifyWrite() throws Exception {
+        long bufferedMillis = runBuffered(new ConcurrentHashMap<>());
+
+        Map<Long, Long> rows = new ConcurrentHashMap<>();
+        for (long postId : POST_IDS) {
+            rows.put(postId, 0L);
+        }
+        long baselineMillis = runConcurrently(i -> {
+            long postId = POST_IDS[i % POST_IDS.length];
+            long current = rows.get(postId);
+            Thread.yield();
+            rows.put(postId, current + 1);
+        });
+        long counted = rows.values().stream().mapToLong(Long::longValue).sum();
+
+        long ops = (long) THREADS * SHARES_PER_THREAD;
+        logger.info("Share counting, {} increments on {} threads: buffered {} ops/ms, "
+                        + "read-modify-write {} ops/ms with {} increments lost",
+                ops, THREADS, ops / Math.max(1, bufferedMillis), ops / Math.max(1, baselineMillis), ops - counted);
+    }
+
+    /**
+     * Increment through the buffer while a flusher drains it; returns the increment phase in ms
+     */
+    @SuppressWarnings("unchecked")
+    private long runBuffered(Map<Long, Long> persisted) throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(eq(ShareCounterBuffer.FLUSH_SQL), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(row -> persisted.merge((Long) row[1], (Long) row[0], Long::sum));
+            return new int[rows.size()];
+        });
+        ShareCounterBuffer buffer = new ShareCounterBuffer();
+        ReflectionTestUtils.setField(buffer, "jdbcTemplate", jdbcTemplate);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                buffer.flush();
+            }
+        });
+        flusher.start();
+
+        long elapsed = runConcurrently(i -> buffer.increment(POST_IDS[i % POST_IDS.length]));
+        running.set(false);
+        flusher.join();
+        buffer.shutdown();
+        for (long postId : POST_IDS) {
+            assertEquals(0, buffer.getPending(postId));
+        }
+        return elapsed;
+    }
+
+    private long runConcurrently(java.util.function.IntConsumer share) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < SHARES_PER_THREAD; i++) {
+                    share.accept(i);
+                }
+                return null;
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+    }
+}
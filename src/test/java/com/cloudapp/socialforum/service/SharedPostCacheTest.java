@@ -0,0 +1,117 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Negative caching of unknown share tokens: cached, evicted once the token is assigned, and expired
+ */
+class SharedPostCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Map<String, PostDTO> database = new HashMap<>();
+    private final Function<String, Optional<PostDTO>> loader = token -> {
+        loads.incrementAndGet();
+        return Optional.ofNullable(database.get(token));
+    };
+
+    private SharedPostCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SharedPostCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "negativeMaxSize", 100L);
+        ReflectionTestUtils.setField(cache, "negativeTtlSeconds", 10L);
+        cache.ticker = (Ticker) nanos::get;
+        cache.init();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void unknownTokenIsLoadedOnce() {
+        assertFalse(cache.get("nope", loader).isPresent());
+        assertFalse(cache.get("nope", loader).isPresent());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void assigningTheTokenEvictsTheMissAfterCommit() {
+        assertFalse(cache.get("abc", loader).isPresent());
+
+        TransactionSynchronizationManager.initSynchronization();
+        database.put("abc", post(1L));
+        cache.tokenAssigned("abc");
+        // Not committed yet: the miss still answers
+        assertFalse(cache.get("abc", loader).isPresent());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertEquals(1L, cache.get("abc", loader).orElseThrow().getId());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void rolledBackAssignmentKeepsTheMiss() {
+        assertFalse(cache.get("abc", loader).isPresent());
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.tokenAssigned("abc");
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertFalse(cache.get("abc", loader).isPresent());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void missExpiresBeforeTheKnownTokens() {
+        database.put("known", post(1L));
+        cache.get("known", loader);
+        cache.get("unknown", loader);
+        // Assigned on another instance: only expiry lets this one see it
+        database.put("unknown", post(2L));
+
+        nanos.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertFalse(cache.get("unknown", loader).isPresent());
+        assertEquals(2, loads.get());
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertTrue(cache.get("unknown", loader).isPresent());
+        assertTrue(cache.get("known", loader).isPresent());
+        assertEquals(3, loads.get());
+    }
+
+    private PostDTO post(Long id) {
+        PostDTO dto = new PostDTO();
+        dto.setId(id);
+        return dto;
+    }
+}
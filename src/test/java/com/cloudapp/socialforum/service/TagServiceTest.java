@@ -0,0 +1,99 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.PostDTO;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.TagStat;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hashtag extraction, tag search order and tag counts, on H2 in MySQL mode for the upserts
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:tags;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class TagServiceTest extends ServiceJpaTest {
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("tagger");
+        user.setEmail("tagger@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void extractsStandaloneHashtagsOnly() {
+        assertEquals(Set.of("ai", "cloud_native", "café"),
+                TagService.extractTags("#AI said hi to #cloud_native and #Café, #ai again"));
+        assertTrue(TagService.extractTags("said C# is fine &#39; #2024 no#tag").isEmpty());
+        assertEquals("ai", TagService.normalizeTag(" #AI "));
+    }
+
+    @Test
+    void tagSearchIsNewestFirstAndCountsFollowWrites() {
+        Post older = save("first steps with #ai");
+        Post newer = save("more #AI and #cloud");
+        save("she said nothing about it");
+        LocalDateTime now = LocalDateTime.now();
+        tagService.recordPostTags(older.getId(), older.getContent(), now.minusHours(1));
+        tagService.recordPostTags(newer.getId(), newer.getContent(), now);
+
+        List<Long> ids = postRepository.findPostDTOsByTag("ai", PageRequest.of(0, 10)).getContent()
+                .stream().map(PostDTO::getId).toList();
+        assertEquals(List.of(newer.getId(), older.getId()), ids);
+
+        List<TagStat> popular = tagService.getPopularTags(10);
+        assertEquals("ai", popular.get(0).getTag());
+        assertEquals(2L, popular.get(0).getPostCount());
+
+        // Replaying the whole table must not count anything twice
+        assertEquals(0, tagService.backfillRange(0L, Long.MAX_VALUE));
+        assertEquals(2L, tagService.getPopularTags(1).get(0).getPostCount());
+
+        tagService.removePostTags(newer.getId());
+        assertEquals(List.of(older.getId()), postRepository.findPostDTOsByTag("ai", PageRequest.of(0, 10))
+                .getContent().stream().map(PostDTO::getId).toList());
+        assertEquals(List.of("ai"), tagService.getPopularTags(10).stream().map(TagStat::getTag).toList());
+    }
+
+    @Test
+    void backfillTagsExistingPosts() {
+        save("legacy #java post");
+        save("another #Java one");
+
+        assertEquals(2, tagService.backfillRange(0L, Long.MAX_VALUE));
+        assertEquals(2L, tagService.getPopularTags(1).get(0).getPostCount());
+    }
+
+    private Post save(String content) {
+        Post post = new Post();
+        post.setContent(content);
+        post.setUser(user);
+        post.setMediaType("text");
+        return postRepository.save(post);
+    }
+}
@@ -0,0 +1,139 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.model.TrendingScore;
+import com.cloudapp.socialforum.repository.TrendingScoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrendingServiceTest {
+
+    private TrendingService trendingService;
+
+    @BeforeEach
+    void setUp() {
+        trendingService = new TrendingService();
+        ReflectionTestUtils.setField(trendingService, "halfLifeHours", 12.0);
+        ReflectionTestUtils.setField(trendingService, "capacity", 3);
+        ReflectionTestUtils.setField(trendingService, "postWeight", 1.0);
+        ReflectionTestUtils.setField(trendingService, "likeWeight", 1.0);
+        ReflectionTestUtils.setField(trendingService, "commentWeight", 2.0);
+        ReflectionTestUtils.setField(trendingService, "shareWeight", 3.0);
+        trendingService.init();
+    }
+
+    private void setClock(Instant now) {
+        trendingService.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void ranksByWeightedEngagement() {
+        trendingService.recordLike(1L, true);
+        trendingService.recordComment(2L, 1);
+        trendingService.recordShare(3L);
+
+        assertEquals(List.of(3L, 2L, 1L), trendingService.getTopPostIds(10));
+        assertEquals(List.of(3L), trendingService.getTopPostIds(1));
+    }
+
+    @Test
+    void reversalsLowerTheScoreAndDropEmptyPosts() {
+        trendingService.recordLike(1L, true);
+        trendingService.recordLike(2L, true);
+        trendingService.recordLike(2L, true);
+        trendingService.recordLike(2L, false);
+        trendingService.recordLike(1L, false);
+
+        assertEquals(List.of(2L), trendingService.getTopPostIds(10));
+        assertEquals(1.0, trendingService.getScore(2L), 1e-3);
+    }
+
+    @Test
+    void reversingAnOlderEventOnlyRemovesItsDecayedWeight() {
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        setClock(start);
+        trendingService.init();
+        trendingService.recordLike(1L, true);
+        trendingService.recordComment(1L, 1);
+        trendingService.recordLike(2L, true);
+
+        // Two half-lives later the like counts 0.25 and the comment 0.5
+        setClock(start.plus(Duration.ofHours(24)));
+        trendingService.recordLike(1L, false);
+
+        assertEquals(List.of(1L, 2L), trendingService.getTopPostIds(10));
+        assertEquals(0.5, trendingService.getScore(1L), 1e-3);
+        assertEquals(0.25, trendingService.getScore(2L), 1e-3);
+
+        trendingService.recordComment(1L, -1);
+        assertEquals(List.of(2L), trendingService.getTopPostIds(10));
+    }
+
+    @Test
+    void keepsOnlyTheBestPostsWithinCapacity() {
+        trendingService.recordShare(1L);
+        trendingService.recordShare(2L);
+        trendingService.recordShare(3L);
+        trendingService.recordLike(4L, true);
+        trendingService.recordShare(1L);
+
+        List<Long> top = trendingService.getTopPostIds(10);
+        assertEquals(3, top.size());
+        assertEquals(1L, top.get(0));
+        assertFalse(top.contains(4L));
+    }
+
+    @Test
+    void deletingAThreadReversesEveryRemovedComment() {
+        trendingService.recordComment(1L, 1);
+        trendingService.recordComment(1L, 1);
+        trendingService.recordComment(1L, 1);
+        trendingService.recordShare(1L);
+
+        trendingService.recordComment(1L, -3);
+
+        assertEquals(3.0, trendingService.getScore(1L), 1e-3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkpointKeepsTheHigherScoreAnotherInstanceWrote() {
+        Instant now = Instant.parse("2026-01-01T12:00:00Z");
+        setClock(now);
+        trendingService.init();
+        TrendingScoreRepository repository = mock(TrendingScoreRepository.class);
+        ReflectionTestUtils.setField(trendingService, "trendingScoreRepository", repository);
+        ReflectionTestUtils.setField(trendingService, "transactionManager", mock(PlatformTransactionManager.class));
+        trendingService.recordShare(1L);
+        trendingService.recordShare(2L);
+
+        // Another node checkpointed post 1 an hour ago with a score that is still higher after decay
+        LocalDateTime anHourAgo = LocalDateTime.ofInstant(now.minus(Duration.ofHours(1)), ZoneId.systemDefault());
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(new TrendingScore(1L, 10.0, anHourAgo)));
+
+        trendingService.checkpoint();
+
+        ArgumentCaptor<List<TrendingScore>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(saved.capture());
+        assertEquals(List.of(2L), saved.getValue().stream().map(TrendingScore::getPostId).toList());
+        verify(repository).deleteScoredBefore(any(LocalDateTime.class));
+    }
+}
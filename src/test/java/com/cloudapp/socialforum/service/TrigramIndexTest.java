@@ -0,0 +1,105 @@
+package com.cloudapp.socialforum.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Typo lookup behaviour of TrigramIndex; the million-string timing run only runs with -Dbenchmark=true
+ */
+class TrigramIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrigramIndexTest.class);
+
+    @Test
+    void boundedLevenshteinStopsAtTheBudget() {
+        assertEquals(0, TrigramIndex.boundedLevenshtein("cloud", "cloud", 2));
+        assertEquals(1, TrigramIndex.boundedLevenshtein("cloud", "clod", 2));
+        assertEquals(2, TrigramIndex.boundedLevenshtein("cloud", "clodu", 2));
+        assertEquals(3, TrigramIndex.boundedLevenshtein("cloud", "crown", 2));
+        assertEquals(2, TrigramIndex.boundedLevenshtein("kitten", "sitting", 1));
+    }
+
+    @Test
+    void findsMisspellingsClosestFirst() {
+        TrigramIndex index = new TrigramIndex();
+        List.of("alexander", "alexandra", "alexandre", "sandra", "alex").forEach(index::add);
+
+        List<TrigramIndex.Match> matches = index.lookup("alexnader", 10);
+        assertEquals(List.of("alexander"), matches.stream().map(TrigramIndex.Match::value).toList());
+
+        assertEquals("alexandra", index.lookup("alexandra", 1).get(0).value());
+        assertEquals(3, index.lookup("alexandr", 10).size());
+
+        index.remove("alexander");
+        assertTrue(index.lookup("alexnader", 10).isEmpty());
+    }
+
+    @Test
+    void compactsOnceEnoughStringsAreRemoved() {
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < 4_000; i++) {
+            index.add("user" + i);
+        }
+        for (int i = 0; i < 3_000; i++) {
+            index.remove("user" + i);
+        }
+        assertEquals(1_000, index.size());
+        assertTrue(((List<?>) ReflectionTestUtils.getField(index, "strings")).size() < 2_000);
+        assertTrue(index.lookup("user12", 10).stream().noneMatch(match -> match.value().equals("user12")));
+        assertEquals("user3999", index.lookup("usr3999", 1).get(0).value());
+
+        index.add("user12");
+        assertEquals("user12", index.lookup("user12", 1).get(0).value());
+        assertEquals(1_001, index.size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkLookupsAtAMillionStrings() {
+        Random random = new Random(11);
+        TrigramIndex index = new TrigramIndex();
+        String[] names = new String[1_000_000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = randomName(random);
+            index.add(names[i]);
+        }
+        String[] typos = new String[500];
+        for (int i = 0; i < typos.length; i++) {
+            typos[i] = withTypo(names[random.nextInt(names.length)], random);
+        }
+        for (String typo : typos) {
+            index.lookup(typo, 10);
+        }
+        int found = 0;
+        long started = System.nanoTime();
+        for (String typo : typos) {
+            found += index.lookup(typo, 10).isEmpty() ? 0 : 1;
+        }
+        double millis = (System.nanoTime() - started) / 1e6 / typos.length;
+        logger.info("Trigram lookup over {} strings: {} ms per query, {}/{} typos resolved",
+                index.size(), String.format("%.2f", millis), found, typos.length);
+        assertEquals(typos.length, found);
+    }
+
+    private String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0, length = 6 + random.nextInt(8); i < length; i++) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.toString();
+    }
+
+    private String withTypo(String name, Random random) {
+        int at = 1 + random.nextInt(name.length() - 2);
+        return name.substring(0, at) + name.charAt(at + 1) + name.charAt(at) + name.substring(at + 2);
+    }
+}
@@ -0,0 +1,54 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSnapshotCacheTest {
+
+    @Test
+    void servesSnapshotsUntilEvicted() {
+        UserRepository userRepository = mock(UserRepository.class);
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole("USER");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        when(userRepository.findById(8L)).thenReturn(Optional.empty());
+        UserSnapshotCache cache = newCache(userRepository);
+
+        assertEquals("alice", cache.get(7L).orElseThrow().getUsername());
+        assertEquals("alice", cache.get(7L).orElseThrow().getUsername());
+        verify(userRepository, times(1)).findById(7L);
+
+        // Deleted users are remembered as absent too
+        assertTrue(cache.get(8L).isEmpty());
+        assertTrue(cache.get(8L).isEmpty());
+        verify(userRepository, times(1)).findById(8L);
+
+        cache.evict(7L);
+        cache.get(7L);
+        verify(userRepository, times(2)).findById(7L);
+    }
+
+    private UserSnapshotCache newCache(UserRepository userRepository) {
+        UserSnapshotCache cache = new UserSnapshotCache();
+        ReflectionTestUtils.setField(cache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        cache.init();
+        return cache;
+    }
+}
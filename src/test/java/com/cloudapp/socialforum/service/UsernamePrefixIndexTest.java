@@ -0,0 +1,116 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.dto.AuthorSummary;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prefix suggestions and cross-instance refresh; the million-user timing run only runs with -Dbenchmark=true
+ */
+class UsernamePrefixIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernamePrefixIndexTest.class);
+
+    @Test
+    void suggestsCaseInsensitivePrefixMatchesInOrder() {
+        UsernamePrefixIndex index = new UsernamePrefixIndex();
+        index.put(user(1L, "alice"));
+        index.put(user(2L, "Alicia"));
+        index.put(user(3L, "bob"));
+        index.put(user(4L, "al"));
+
+        assertEquals(List.of("al", "alice", "Alicia"), names(index.suggest("AL", 10)));
+        assertEquals(List.of("al", "alice"), names(index.suggest("al", 2)));
+        assertEquals(List.of("alice", "Alicia"), names(index.suggest("ali", 10)));
+        assertTrue(index.suggest("", 10).isEmpty());
+
+        index.put(user(2L, "zed"));
+        index.remove(1L);
+        assertEquals(List.of("al"), names(index.suggest("al", 10)));
+        assertEquals(List.of("zed"), names(index.suggest("z", 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void refreshPicksUpUsersRegisteredElsewhere() {
+        UserRepository userRepository = mock(UserRepository.class);
+        UsernamePrefixIndex index = new UsernamePrefixIndex();
+        ReflectionTestUtils.setField(index, "userRepository", userRepository);
+        when(userRepository.findAllAuthorSummaries()).thenReturn(List.of(
+                new AuthorSummary(1L, "alice", "USER", null), new AuthorSummary(3L, "carol", "USER", null)));
+        index.load();
+
+        // Refresh runs against ids above the highest loaded one; 4 was also written locally
+        index.put(user(4L, "alina"));
+        when(userRepository.findAuthorSummariesAfter(3L)).thenReturn(List.of(
+                new AuthorSummary(4L, "alina", "USER", null), new AuthorSummary(5L, "Albert", "USER", null)));
+        index.refresh();
+        assertEquals(List.of("Albert", "alice", "alina"), names(index.suggest("al", 10)));
+        assertEquals(4, index.size());
+        assertEquals(List.of("Albert"), names(index.fuzzy("albret", 10)));
+
+        when(userRepository.findAuthorSummariesAfter(5L)).thenReturn(List.of());
+        index.refresh();
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPrefixQueriesAtAMillionUsers() {
+        UsernamePrefixIndex index = new UsernamePrefixIndex();
+        Random random = new Random(3);
+        List<AuthorSummary> users = new ArrayList<>();
+        for (long id = 1; id <= 1_000_000; id++) {
+            users.add(new AuthorSummary(id, randomName(random), "USER", null));
+        }
+        index.replaceAll(users);
+        String[] prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = randomName(random).substring(0, 1 + random.nextInt(3));
+        }
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            hits += index.suggest(prefixes[i & 1023], 8).size();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < 1_000_000; i++) {
+            hits += index.suggest(prefixes[i & 1023], 8).size();
+        }
+        double micros = (System.nanoTime() - started) / 1e3 / 1_000_000;
+        logger.info("Username suggest at 1M users: {} us per query ({} hits)", String.format("%.2f", micros), hits);
+    }
+
+    private String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0, length = 4 + random.nextInt(8); i < length; i++) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.toString();
+    }
+
+    private List<String> names(List<AuthorSummary> users) {
+        return users.stream().map(AuthorSummary::getUsername).toList();
+    }
+
+    private User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole("USER");
+        return user;
+    }
+}
@@ -0,0 +1,134 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.controller.PostController;
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import com.cloudapp.socialforum.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.result.JsonPathResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/posts/viewer-state against real likes: liked, not liked, and anonymous viewers,
+ * and the body userId being used only when the request has no principal
+ */
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:viewerstate;MODE=MySQL;DB_CLOSE_DELAY=-1")
+class ViewerStateTest extends ServiceJpaTest {
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private MockMvc mockMvc;
+    private User viewer;
+    private User other;
+    private Post likedByViewer;
+    private Post likedByOther;
+
+    @BeforeEach
+    void setUp() {
+        PostController controller = new PostController();
+        ReflectionTestUtils.setField(controller, "likeService", likeService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        viewer = userRepository.save(user("viewer"));
+        other = userRepository.save(user("other"));
+        likedByViewer = postRepository.save(newPost(other, "liked by the viewer"));
+        likedByOther = postRepository.save(newPost(viewer, "liked by someone else"));
+        likeService.like(likedByViewer.getId(), viewer.getId());
+        likeService.like(likedByOther.getId(), other.getId());
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void likedAndUnlikedPostsForTheAuthenticatedViewer() throws Exception {
+        authenticateAs(viewer);
+
+        requestStates(null)
+                .andExpect(status().isOk())
+                .andExpect(state(likedByViewer, "liked").value(true))
+                .andExpect(state(likedByViewer, "likeCount").value(1))
+                .andExpect(state(likedByOther, "liked").value(false))
+                .andExpect(state(likedByOther, "likeCount").value(1));
+    }
+
+    @Test
+    void anonymousViewerHasLikedNothing() throws Exception {
+        requestStates(null)
+                .andExpect(status().isOk())
+                .andExpect(state(likedByViewer, "liked").value(false))
+                .andExpect(state(likedByOther, "liked").value(false))
+                .andExpect(state(likedByOther, "likeCount").value(1));
+    }
+
+    @Test
+    void bodyUserIdIsOnlyUsedWithoutAPrincipal() throws Exception {
+        requestStates(other.getId())
+                .andExpect(state(likedByViewer, "liked").value(false))
+                .andExpect(state(likedByOther, "liked").value(true));
+
+        authenticateAs(viewer);
+        requestStates(other.getId())
+                .andExpect(state(likedByViewer, "liked").value(true))
+                .andExpect(state(likedByOther, "liked").value(false));
+    }
+
+    private ResultActions requestStates(Long bodyUserId) throws Exception {
+        String body = String.format("{\"postIds\":[%d,%d]%s}", likedByViewer.getId(), likedByOther.getId(),
+                bodyUserId != null ? ",\"userId\":" + bodyUserId : "");
+        return mockMvc.perform(post("/api/posts/viewer-state").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private JsonPathResultMatchers state(Post post, String field) {
+        return jsonPath("$.states[?(@.postId == " + post.getId() + ")]." + field);
+    }
+
+    private void authenticateAs(User user) {
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getUsername(), "USER");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        return user;
+    }
+
+    private Post newPost(User author, String content) {
+        Post post = new Post();
+        post.setContent(content);
+        post.setUser(author);
+        post.setMediaType("text");
+        return post;
+    }
+}
@@ -0,0 +1,107 @@
+package com.cloudapp.socialforum.service;
+
+import com.cloudapp.socialforum.model.Post;
+import com.cloudapp.socialforum.model.User;
+import com.cloudapp.socialforum.repository.PostRepository;
+import com.cloudapp.socialforum.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Statements issued by the hot write paths, counted with Hibernate statistics
+ */
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:writes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class WritePathQueryCountTest extends ServiceJpaTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+    private Post post;
+
+    @BeforeEach
+    void seed() {
+        user = new User();
+        user.setUsername("writer");
+        user.setEmail("writer@example.com");
+        user.setPassword("secret");
+        userRepository.save(user);
+
+        post = new Post();
+        post.setContent("existing post");
+        post.setUser(user);
+        postRepository.save(post);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    /**
+     * Before: SELECT user + INSERT post (2). After: INSERT only
+     */
+    @Test
+    void createPostIsASingleInsert() {
+        postService.createPost("hello", null, user.getId());
+        entityManager.flush();
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Before: SELECT post + SELECT user + INSERT + counter UPDATE (4). After: INSERT + counter UPDATE
+     */
+    @Test
+    void createCommentSkipsPostAndUserLoads() {
+        commentService.createComment("nice", post.getId(), user.getId());
+        entityManager.flush();
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Before (toggle): SELECT post + SELECT user + EXISTS + INSERT + COUNT (5).
+     * After: INSERT IGNORE + counter UPDATE + counter read
+     */
+    @Test
+    void likeIsInsertIgnorePlusCounter() {
+        likeService.like(post.getId(), user.getId());
+        entityManager.flush();
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void unknownAuthorSurfacesAsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> postService.createPost("hello", null, 999_999L));
+    }
+}